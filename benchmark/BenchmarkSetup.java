@@ -0,0 +1,23 @@
+package BnP_Framework;
+/*
+The class prepares the data of the benchmarks, the instances are built by InstanceGenerator from the number of
+    customers and a seed, so every run measures the same instances, and the master problem is the bundled simplex, so
+    the benchmarks run without a Gurobi licence
+the benchmarks are in the package of the solver, so they can call its package-private methods
+*/
+final class BenchmarkSetup {
+    static final long seed = 1;
+
+    private BenchmarkSetup(){
+    }
+
+    // a solve of a generated instance, the column pool starts with the route {0,i} of each customer
+    static UserParam user(int customers){
+        UserParam.lpSolver = MasterProblem.Backend.SIMPLEX;
+        UserParam user = new UserParam(InstanceGenerator.generate(customers, seed));
+        for (int i=1;i<user.nodeCount;i++){
+            user.columnPool.add(new Route(new int[]{0, i}, user));
+        }
+        return user;
+    }
+}
@@ -0,0 +1,55 @@
+package BnP_Framework;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/*
+The benchmark measures the column generation of the root node from the routes {0,i}, with the cuts of 'cutRounds'
+    separation rounds, each invocation starts from a new column pool, cut pool and master problem
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnGenerationBenchmark {
+    @Param({"30", "60"})
+    int customers;
+
+    @Param({"0", "10"})
+    int cutRounds;
+
+    UserParam user;
+    BnbNode root;
+    MasterProblem mp;
+
+    @Setup(Level.Invocation)
+    public void setup(){
+        this.user = BenchmarkSetup.user(this.customers);
+        UserParam.cutRounds = this.cutRounds;
+        this.root = new BnbNode(this.user);
+        this.mp = MasterProblem.create(this.user);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown(){
+        this.mp.dispose();
+    }
+
+    @Benchmark
+    public double root(){
+        this.root.columnGeneration(this.mp, this.user);
+        return this.root.objVal;
+    }
+}
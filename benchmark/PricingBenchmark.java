@@ -0,0 +1,96 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+/*
+The benchmark measures the label extension and dominance of the pricing of the root node, exact() is the exact
+    labeling and reducedGraph() the labeling on the UserParam.pricingArcs cheapest arcs of each vertex
+    'duals' are the duals of the pricing, "initial" those of the master problem with the routes {0,i}, "midway" those
+    after 10 iterations of column generation, and "final" those at the end of column generation, where the exact
+    labeling has to prove that no negative route is left
+    'labeling' is the relaxation, "twoCycle" the default 2-cycle elimination, "ng8" ng-routes with neighbourhoods of 8
+    customers, and "bidirectional" the 2-cycle elimination with bidirectional labeling
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+    @Param({"30", "60"})
+    int customers;
+
+    @Param({"initial", "midway", "final"})
+    String duals;
+
+    @Param({"twoCycle", "ng8", "bidirectional"})
+    String labeling;
+
+    @Param({"1"})
+    int threads;
+
+    static final int maxRoute = 200;
+    double[] pi;
+    Labeling pricing;
+    List<Route> routes = new ArrayList<Route>();
+    MasterProblem mp;
+
+    @Setup
+    public void setup(){
+//        the pricing threads of a solve are fixed when its UserParam is created
+        UserParam.pricingThreads = this.threads;
+        UserParam user = BenchmarkSetup.user(this.customers);
+        UserParam.cutRounds = 0;
+        UserParam.ngSize = this.labeling.equals("ng8") ? 8 : 0;
+        UserParam.bidirectional = this.labeling.equals("bidirectional");
+        if (this.duals.equals("initial")){
+            this.pi = new double[user.nodeCount];
+            for (int i=1;i<user.nodeCount;i++){
+                this.pi[i] = user.cost[0][i] + user.cost[i][0];
+            }
+        }else{
+            this.mp = MasterProblem.create(user);
+            BnbNode root = new BnbNode(user);
+            if (this.duals.equals("midway")){
+                root.columnGeneration(this.mp, user, 10);
+            }else{
+                root.columnGeneration(this.mp, user);
+            }
+            this.pi = this.mp.duals();
+        }
+        this.pricing = new Labeling(user, user.successors);
+    }
+
+    @TearDown
+    public void tearDown(){
+        if (this.mp != null){
+            this.mp.dispose();
+        }
+        this.pricing.user.pricing.shutdown();
+    }
+
+    @Benchmark
+    public int exact(){
+        this.routes.clear();
+        return this.pricing.pricing(this.pi, maxRoute, this.routes);
+    }
+
+    @Benchmark
+    public int reducedGraph(){
+        this.routes.clear();
+        return this.pricing.pricing(this.pi, maxRoute, this.routes, UserParam.pricingArcs);
+    }
+}
@@ -0,0 +1,86 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+/*
+The benchmark measures the construction of routes from paths, and the view of the column pool that a node takes of
+    the routes compatible with its arcs
+    the paths are random elementary paths whose load fits in the capacity, and the arcs of the node are those of the
+    instance without a random tenth of them
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+    @Param({"50", "200"})
+    int customers;
+
+    @Param({"10000"})
+    int routes;
+
+    UserParam user;
+    int[][] paths;
+    ColumnPool pool;
+    long[] arcs;
+
+    @Setup
+    public void setup(){
+        UserParam user = BenchmarkSetup.user(this.customers);
+        this.user = user;
+        Random random = new Random(BenchmarkSetup.seed);
+        this.paths = new int[this.routes][];
+        this.pool = new ColumnPool();
+        for (int r=0;r<this.routes;r++){
+            List<Integer> path = new ArrayList<Integer>();
+            path.add(0);
+            boolean[] visited = new boolean[user.nodeCount];
+            double load = 0.0;
+            while (true){
+                int next = 1 + random.nextInt(user.nodeCount - 1);
+                if (visited[next] || load + user.demand[next] > user.capacity){
+                    break;
+                }
+                visited[next] = true;
+                load += user.demand[next];
+                path.add(next);
+            }
+            this.paths[r] = path.stream().mapToInt(Integer::intValue).toArray();
+            this.pool.add(new Route(this.paths[r], user));
+        }
+        List<List<Integer>> kept = new ArrayList<List<Integer>>();
+        for (List<Integer> arc: user.arcs){
+            if (random.nextInt(10) != 0){
+                kept.add(arc);
+            }
+        }
+        this.arcs = user.arcSet(kept);
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole){
+        for (int[] path: this.paths){
+            blackhole.consume(new Route(path, this.user));
+        }
+    }
+
+    @Benchmark
+    public List<Route> view(){
+        return this.pool.view(this.arcs);
+    }
+}
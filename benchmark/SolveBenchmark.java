@@ -0,0 +1,57 @@
+package BnP_Framework;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+/*
+The benchmark measures a full solve like Framework.main(), the savings heuristic, then the exploration of the branching
+    tree until it is proven optimal, with 'threads' workers
+    the workers only speed up the solve when each one has a core, run it with "-p threads=1,2,4" on a machine with
+    enough cores to see how the larger trees scale
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SolveBenchmark {
+    @Param({"10", "20", "30"})
+    int customers;
+
+    @Param({"1", "4"})
+    int threads;
+
+    UserParam user;
+    NodePool unexplored;
+
+    @Setup(Level.Invocation)
+    public void setup(){
+        this.user = BenchmarkSetup.user(this.customers);
+        UserParam.threads = this.threads;
+        if (UserParam.savings){
+            PrimalHeuristic.savings(this.user);
+        }
+        this.unexplored = new NodePool(UserParam.nodeSelection);
+        this.unexplored.add(new BnbNode(this.user));
+    }
+
+    @Benchmark
+    public double solve(){
+        if (UserParam.deterministic){
+            Framework.exploreRounds(this.unexplored, this.user);
+        }else{
+            Framework.explore(this.unexplored, this.user);
+        }
+        return this.user.upperBound();
+    }
+}
@@ -0,0 +1,216 @@
+package BnP_Framework;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+/*
+The class solves many instances in one JVM, solve(instances, finished) runs up to 'solves' instances at the same time
+    on a fixed pool of threads, each instance is read and solved by class Solver on a thread of the pool, so only the
+    instances being solved are in memory, and the next instance is only taken from the iterator once a thread is free,
+    which bounds the work queued for a stream of instances of unknown length
+    the options of each solve are given by 'options' from the name of its file, so they can set a time limit for every
+    instance, or a trace or a checkpoint file per instance, two solves must not share a trace or a checkpoint file
+    'finished' is called with the Entry of each instance as soon as it is solved, one call at a time, an instance that
+    can't be read or solved is reported with its error and doesn't stop the batch
+    the Report lists the entries in the order of the instances, with the counts of each status and the throughput
+every solve explores its tree with UserParam.threads workers and prices with its own PricingWorkers, so a batch
+    should keep UserParam.threads and UserParam.pricingThreads at 1 and give the cores to the concurrent solves, the
+    static parameters of UserParam configure every solve of the batch
+    the parameters are read by the running solves, so they must not change during a batch, solve() records
+    UserParam.parameters() when it starts and checks them before and after each instance, an instance solved while they
+    differed is reported as failed, the Report keeps the parameters of the batch
+*/
+public class BatchSolver {
+    // the outcome of one instance, 'result' is null and 'error' is set if it failed
+    public static class Entry {
+        public final int index;     // the position of the instance in the batch
+        public final Path path;
+        public final Solver.Result result;
+        public final String error;
+        public final double seconds;    // from the start of the reading of the instance to the end of its solve
+
+        Entry(int index, Path path, Solver.Result result, String error, double seconds){
+            this.index = index;
+            this.path = path;
+            this.result = result;
+            this.error = error;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString(){
+            if (this.result == null){
+                return this.path.getFileName() + ": failed, " + this.error;
+            }
+            return String.format(Locale.ROOT, "%s: %s, objective %s, bound %s, %d nodes, %.2fs", this.path.getFileName(),
+                    this.result.status, this.result.objective, this.result.bound, this.result.nodes, this.seconds);
+        }
+    }
+
+    public static class Report {
+        public final List<Entry> entries;
+        public final double seconds;    // the wall time of the batch
+        public final int solves;    // the solves run at the same time
+        public final Map<Solver.Status, Integer> statuses = new EnumMap<Solver.Status, Integer>(Solver.Status.class);
+        public final int failed;
+        public final String parameters;     // the static parameters of UserParam the batch was solved with
+
+        Report(List<Entry> entries, double seconds, int solves, String parameters){
+            this.entries = entries;
+            this.seconds = seconds;
+            this.solves = solves;
+            this.parameters = parameters;
+            int failed = 0;
+            for (Entry entry: entries){
+                if (entry.result == null){
+                    failed++;
+                }else{
+                    this.statuses.merge(entry.result.status, 1, Integer::sum);
+                }
+            }
+            this.failed = failed;
+        }
+
+        // instances per hour of wall time
+        public double throughput(){
+            return this.seconds > 0 ? this.entries.size() * 3600 / this.seconds : 0.0;
+        }
+
+        // the sum of the times of the instances over the wall time, the average number of solves that were running
+        public double concurrency(){
+            double sum = 0.0;
+            for (Entry entry: this.entries){
+                sum += entry.seconds;
+            }
+            return this.seconds > 0 ? sum / this.seconds : 0.0;
+        }
+
+        // the time of an instance at the quantile q between 0 and 1, NaN without instances
+        public double quantile(double q){
+            if (this.entries.isEmpty()){
+                return Double.NaN;
+            }
+            double[] seconds = this.entries.stream().mapToDouble(entry -> entry.seconds).sorted().toArray();
+            return seconds[(int) Math.min(seconds.length - 1, Math.floor(q * seconds.length))];
+        }
+
+        @Override
+        public String toString(){
+            String statuses = this.statuses.entrySet().stream().map(status -> status.getValue() + " " +
+                    status.getKey().toString().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", "));
+            return String.format(Locale.ROOT, "batch: %d instances in %.2fs with %d solves at a time, %s%s%s, " +
+                            "%.1f instances per hour, concurrency %.2f, instance time median %.2fs, p95 %.2fs, max %.2fs",
+                    this.entries.size(), this.seconds, this.solves, statuses, statuses.isEmpty() ? "" : ", ",
+                    this.failed + " failed", throughput(), concurrency(), quantile(0.5), quantile(0.95), quantile(1.0));
+        }
+    }
+
+    private final int solves;
+    private final Function<String, Solver.Options> options;
+
+    // run up to 'solves' instances at the same time, with the options given for the file name of each instance
+    public BatchSolver(int solves, Function<String, Solver.Options> options){
+        if (solves < 1){
+            throw new IllegalArgumentException("a batch needs at least one solve at a time, not " + solves);
+        }
+        this.solves = solves;
+        this.options = options;
+    }
+
+    // the instance files of the directory, .json, .vrp or .bin, in order of name
+    public static List<Path> instances(Path directory){
+        try (Stream<Path> files = Files.list(directory)){
+            return files.filter(path -> {
+                String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+                return Files.isRegularFile(path) && (name.endsWith(".json") || name.endsWith(".vrp") ||
+                        name.endsWith(".bin"));
+            }).sorted().collect(Collectors.toList());
+        }catch (IOException e){
+            throw new UncheckedIOException("can't list instances of " + directory, e);
+        }
+    }
+
+    public Report solve(List<Path> instances, Consumer<Entry> finished){
+        return solve(instances.iterator(), finished);
+    }
+
+    // solve the instances in the order of the iterator, 'finished' may be null
+    public Report solve(Iterator<Path> instances, Consumer<Entry> finished){
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(this.solves, task -> {
+            Thread thread = new Thread(task, "bnb-batch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+//        a permit for each thread, an instance is only submitted once a thread is free
+        Semaphore free = new Semaphore(this.solves);
+        List<Entry> entries = Collections.synchronizedList(new ArrayList<Entry>());
+        String parameters = UserParam.parameters();
+        long start = System.nanoTime();
+        try{
+            for (int index=0;instances.hasNext();index++){
+                Path path = instances.next();
+                int position = index;
+                free.acquireUninterruptibly();
+                pool.execute(() -> {
+                    try{
+                        Entry entry = solve(position, path, parameters);
+                        entries.add(entry);
+                        if (finished != null){
+                            synchronized (finished){
+                                finished.accept(entry);
+                            }
+                        }
+                    }finally{
+                        free.release();
+                    }
+                });
+            }
+//            all permits are back once the last instance is solved
+            free.acquireUninterruptibly(this.solves);
+        }finally{
+            pool.shutdown();
+        }
+        List<Entry> ordered = new ArrayList<Entry>(entries);
+        ordered.sort(Comparator.comparingInt(entry -> entry.index));
+        return new Report(ordered, (System.nanoTime() - start) / 1e9, this.solves, parameters);
+    }
+
+    private Entry solve(int index, Path path, String parameters){
+        long start = System.nanoTime();
+        try{
+            changed(parameters);
+            Instance instance = Instance.read(path);
+            Solver.Result result = Solver.solve(instance, this.options.apply(path.getFileName().toString()));
+            changed(parameters);
+            return new Entry(index, path, result, null, (System.nanoTime() - start) / 1e9);
+        }catch (RuntimeException e){
+            return new Entry(index, path, null, e.toString(), (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    // fail the instance if the static parameters differ from the ones the batch started with
+    private static void changed(String parameters){
+        String current = UserParam.parameters();
+        if (!current.equals(parameters)){
+            throw new IllegalStateException("the parameters of UserParam changed during the batch, from " + parameters +
+                    " to " + current);
+        }
+    }
+}
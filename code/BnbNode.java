@@ -1,43 +1,219 @@
 package BnP_Framework;
-import gurobi.*;
 import java.util.*;
 import java.util.stream.Collectors;
 /*
-Each instance is a node in the branch tree
-'arcs' attribute is the available arc of the node, and 'routes' is the initial routes from the parent node, respectively
-'solutionRoutes' is the final routes after optimization, and 'objVal' records the objective value
-'fractionArc' records the arc that be fractionally visited, we branch the arc that be visited closest to 0.5 to branch
+Each instance is a node in the branch tree of the solve of 'user', whose instance it belongs to
+a node only stores how it differs from its parent, the arc it enforces or removes, the route it fixes for diving, and
+    the arcs removed by arc fixing once it is optimized, which its children inherit, arcs() rebuilds the available arcs
+    of the node as a bitset of arc ids from the arcs of the root and the differences along the path from the root
+'routes' is the routes of the global column pool that only use the arcs of the node, the view is taken when the node
+    is optimized and the routes generated by pricing are added to the pool
+'successors' is the successor array of each vertex built from the arcs, which is scanned when extending labels
+the arcs, the routes and the other data of the optimization are released by release() once the node is branched, the
+    node only keeps a link to its parent, so the nodes of a finished subtree are collected as soon as no unexplored
+    node descends from them
+'solutionRoutes' is the final routes after optimization, 'solutionValues' their values, and 'objVal' records the
+    objective value, 'reducedCosts' is the reduced cost of each route of 'routes' under the final duals of the node,
+    the node keeps them itself since the routes are shared with the other workers, the column pool gets a copy
+'fractionArc' records the arc that be fractionally visited, the arc to branch on is chosen by class Branching
 'feasible' records the status of the current node, if infeasible we can cut it from the branch tree
-'depth' records the current depth in the branch tree, while 'parent' and 'child' record its parent and child node
-columnGeneration() is used to optimize the relaxed model, while the sub problem is solved by labeling algorithm
+'pruned' records that column generation stopped early because the lower bound of the node reached the incumbent
+'interrupted' records that column generation was stopped by the SolveControl of the solve, the node is then neither
+    optimized nor pruned, and it can be optimized again from the start
+'depth' records the current depth in the branch tree, while 'parent' records its parent node
+'branchArc' is the arc the parent was branched on, which the node enforces or removes, the flow of the arc in the
+    parent and the objective of the parent are kept to learn the pseudo-costs of the arc
+columnGeneration(mp, user) is used to optimize the relaxed model with the master problem of the worker, while the sub
+    problem is solved by labeling algorithm
+    after each exact pricing the Lagrangian bound and the Farley bound of the duals raise 'lowerBound', and column
+    generation stops as soon as it reaches the upper bound of user, since the node can't improve the incumbent
+    at the end the arcs that can't be part of a solution better than the incumbent are removed, see fixArcs()
+    pricing(pi, maxRoute, control) runs the pricing stages in order of cost and stops at the first one that finds routes, the
+    heuristics of class PricingHeuristic, the labeling on the reduced graph of the UserParam.pricingArcs cheapest arcs
+    of each vertex, and the exact labeling algorithm of class Labeling, so column generation only ends when the exact
+    labeling finds no route
+    the duals are stabilized by the method of UserParam.stabilization, see class Stabilization
+    once column generation converges, rounded capacity cuts violated by the arc flow of the relaxed solution are
+    separated and added to the global cut pool and to the master problem, and column generation continues with the
+    duals of the cuts in the reduced cost of the arcs, for at most UserParam.cutRounds rounds, see class CutSeparation
+what the optimization costs is collected in 'statistics', see class NodeStatistics, and reported by class Telemetry
+columnGeneration(mp, user, iterationLimit) only evaluates the node for strong branching, at most iterationLimit
+    master problems are solved and no cut is separated, 'objVal' is the objective of the last master problem, or
+    infinity while it still uses artificial columns, and the routes of the solution aren't extracted
  */
 public class BnbNode {
-    List<List<Integer>> arcs;   //the set of arcs of this node
+    long[] rootArcs;    // the arcs of the root, only set at the root
+    long[] arcs;    // the bitset of the arc ids i*nodeCount+j of this node, built by arcs() and released by release()
+    int[] removedArcs;  // the arcs removed by arc fixing in this node, also removed in its descendants
+    Route fixedRoute;   // the route fixed by diving in this node
+    int[][] successors;     // successors[i] are the heads of the arcs of this node leaving i
+    Labeling labeling;  // the labeling algorithm of the sub problem, its label store is reused by every pricing
+    PricingHeuristic heuristic;     // the heuristics tried before labeling
+    double reducedCostBound;    // lower bound of the reduced cost of every route after the last pricing, or -infinity
+    List<Cut> cuts = new ArrayList<Cut>();  // the cuts of the master problem, the dual of the k-th is pi[nodeCount+k]
+    UserParam user;     // the solve of the node
+    ColumnPool pool;    // the global column pool
     List<Route> routes = new ArrayList<Route>(); //current routes
+    Set<Route> inView;  // the routes of 'routes', to skip the routes pricing finds again
     List<Route> solutionRoutes = new ArrayList<Route>(); //  the routes of final solution of the current node
+    List<Double> solutionValues = new ArrayList<Double>();
+    double[] reducedCosts;  // the reduced cost of each route of 'routes' after optimization
     Map<List<Integer>, Double> fractionArc = new HashMap<List<Integer>, Double>();   // the sets of fractional arcs
     double objVal;
-    double lowerBound;
+    volatile double lowerBound;     // read by the other workers for the best bound while the node is optimized
     BnbNode parent;
-    List<BnbNode> child = new ArrayList<BnbNode>();
     boolean feasible = true;   // if the relaxed solution is feasible
+    boolean pruned;     // if column generation was stopped by the lower bound
+    boolean interrupted;    // if column generation was stopped by the SolveControl of the solve
     int depth;  // the depth of the node in the branching tree
+    double estimate;    // estimated integer objective below the node, inherited from the parent
+    long sequence;  // the order in which the node entered the pool of unexplored nodes
+    List<Integer> branchArc;    // the arc enforced or removed by the node, null at the root
+    boolean enforced;   // if the node enforces branchArc
+    double branchFlow;  // the flow of branchArc in the relaxed solution of the parent
+    double parentObjVal;
+    NodeStatistics statistics = new NodeStatistics();
 
-    // generate root node
-    BnbNode(List<List<Integer>> arcs, List<Route> routes){
-        this.arcs = arcs;
-        this.routes = routes;
+    // generate root node, with all arcs of the instance and the column pool of the solve
+    BnbNode(UserParam user){
+        this.rootArcs = user.arcSet(user.arcs);
+        this.user = user;
+        this.pool = user.columnPool;
         this.parent = null; // root node has no parent
         this.depth = 0; // the depth of the root node is 0
         this.lowerBound = Double.NEGATIVE_INFINITY;
+        this.estimate = Double.NEGATIVE_INFINITY;
     }
     // generate new node
-    BnbNode(List<List<Integer>> arcs, List<Route> routes, BnbNode parent){
-        this.arcs = arcs;
-        this.routes = routes;
+    BnbNode(BnbNode parent){
+        this.user = parent.user;
+        this.pool = parent.pool;
         this.parent = parent;
         this.depth = parent.depth+1;
         this.lowerBound = parent.lowerBound;
+        this.estimate = parent.estimate();
+    }
+
+    // the child of the node that enforces the arc, or that removes it, enforcing the arc (i,j) removes the other arcs
+    // leaving i and entering j
+    public BnbNode child(List<Integer> arc, boolean enforce){
+        BnbNode child = new BnbNode(this);
+        child.branchArc = arc;
+        child.enforced = enforce;
+        child.branchFlow = this.fractionArc.get(arc);
+        child.parentObjVal = this.objVal;
+        return child;
+    }
+
+    // the node in which the route is fixed, its arcs are enforced, except that other routes still leave and enter the
+    // depot, and its first and last customers can only be entered from and left to the depot
+    public BnbNode fix(Route route){
+        BnbNode node = new BnbNode(this);
+        node.fixedRoute = route;
+        return node;
+    }
+
+    // the bitset of the arcs of the node, the arcs of the nearest ancestor that still has them, or of the root, without
+    // the arcs removed by the nodes on the path down to this node
+    public long[] arcs(){
+        if (this.arcs != null){
+            return this.arcs;
+        }
+//        another worker may release an ancestor meanwhile, so its arcs are read once
+        Deque<BnbNode> path = new ArrayDeque<BnbNode>();
+        BnbNode ancestor = this;
+        long[] cached = ancestor.arcs;
+        while (cached == null && ancestor.rootArcs == null){
+            path.push(ancestor);
+            ancestor = ancestor.parent;
+            cached = ancestor.arcs;
+        }
+        long[] arcs;
+        if (cached != null){
+            arcs = cached.clone();
+        }else{
+            arcs = ancestor.rootArcs.clone();
+            ancestor.remove(arcs);
+        }
+        while (!path.isEmpty()){
+            path.pop().remove(arcs);
+        }
+        this.arcs = arcs;
+        return arcs;
+    }
+
+    // remove the arcs excluded by the node from the arcs of its parent
+    private void remove(long[] arcs){
+        int n = this.user.nodeCount;
+        if (this.branchArc != null){
+            int start = this.branchArc.get(0);
+            int end = this.branchArc.get(1);
+            if (this.enforced){
+//                enforcing the arc removes the other arcs leaving its start and entering its end
+                for (int k=0;k<n;k++){
+                    if (k != end){
+                        clear(arcs, start * n + k);
+                    }
+                    if (k != start){
+                        clear(arcs, k * n + end);
+                    }
+                }
+            }else{
+                clear(arcs, start * n + end);
+            }
+        }
+        if (this.fixedRoute != null){
+//            the route is fixed, its customers can only be left and entered along its arcs, the depot is free
+            int[] path = this.fixedRoute.path;
+            for (int p=0;p<path.length;p++){
+                int start = path[p];
+                int end = p < path.length - 1 ? path[p+1] : 0;
+                for (int k=0;k<n;k++){
+                    if (start != 0 && k != end){
+                        clear(arcs, start * n + k);
+                    }
+                    if (end != 0 && k != start){
+                        clear(arcs, k * n + end);
+                    }
+                }
+            }
+        }
+        if (this.removedArcs != null){
+            for (int id: this.removedArcs){
+                clear(arcs, id);
+            }
+        }
+    }
+
+    private static void clear(long[] arcs, int id){
+        arcs[id >>> 6] &= ~(1L << id);
+    }
+
+    // release the data of the optimization once the node is branched, its children only need its differences
+    public void release(){
+        this.arcs = null;
+        this.successors = null;
+        this.labeling = null;
+        this.heuristic = null;
+        this.cuts = null;
+        this.routes = null;
+        this.inView = null;
+        this.solutionRoutes = null;
+        this.solutionValues = null;
+        this.reducedCosts = null;
+        this.fractionArc = null;
+        this.statistics = null;
+    }
+
+    // estimate the best integer objective below the optimized node, each unit of fractionality of the arcs is
+    // charged the average cost of serving a customer in the relaxed solution
+    public double estimate(){
+        double fractionality = 0.0;
+        for (double value: this.fractionArc.values()){
+            double fraction = value - Math.floor(value);
+            fractionality += Math.min(fraction, 1 - fraction);
+        }
+        return this.objVal + fractionality * this.objVal / (this.user.nodeCount - 1);
     }
 
     public List<Route> getRoutes(){
@@ -55,277 +231,310 @@ public class BnbNode {
     }
 
     //  column generation phase, since we have an initial route that only visit each customer like 0->i->0,
-    //  the master problem is always feasible
-    public void columnGeneration(){
-        try{
-            int count = 1; // used to record the variable number
-            GRBEnv env = new GRBEnv();
-            GRBModel mp = new GRBModel(env);
-            mp.set(GRB.IntParam.LogToConsole, 0);
-            GRBVar[] y = new GRBVar[this.routes.size()];
-            for(int i = 0;i<this.routes.size();i++){
-                String name = "y"+count;
-                count ++;
-                y[i] = mp.addVar(0.0, 1.0, this.routes.get(i).cost, GRB.CONTINUOUS, name);
+    //  and the master problem has an artificial column for each customer, the master problem is always feasible
+    //  the master problem belongs to the worker, it keeps the model of the previous node to warm start the simplex
+    public void columnGeneration(MasterProblem mp, UserParam user){
+        columnGeneration(mp, user, Integer.MAX_VALUE);
+    }
+
+    public void columnGeneration(MasterProblem mp, UserParam user, int iterationLimit){
+        boolean evaluation = iterationLimit < Integer.MAX_VALUE;
+        int tick = evaluation ? 0 : this.pool.tick();
+        this.statistics.start = System.nanoTime();
+        this.interrupted = false;
+        this.successors = user.successors(arcs());
+        this.routes = this.pool.view(arcs());
+        this.inView = Collections.newSetFromMap(new IdentityHashMap<Route, Boolean>());
+        this.inView.addAll(this.routes);
+        mp.load(this.routes);
+        mp.addCuts(user.cutPool.since(mp.cutCount()));
+        this.cuts = user.cutPool.first(mp.cutCount());
+        solve(mp);
+        double minCost = minRouteCost();
+        int maxRoute = 200;
+        int round = 0;
+        if (evaluation) {
+            if (columnGeneration(mp, user, minCost, maxRoute, iterationLimit)) {
+                this.objVal = mp.infeasibility() > UserParam.tolerance ? Double.POSITIVE_INFINITY : mp.objVal();
             }
-//            add constraints
-            GRBLinExpr expr = new GRBLinExpr();
-            for(int i=1;i<UserParam.nodeCount;i++){
-                expr.clear();
-                for(int j=0;j<this.routes.size();j++){
-                    if(this.routes.get(j).path.contains(i)){
-                        expr.addTerm(1.0, y[j]);
-                    }else{
-                        expr.addTerm(0.0, y[j]);
-                    }
-                }
-                mp.addConstr(expr, GRB.EQUAL, 1.0, "con");
+            return;
+        }
+        do {
+            if (!columnGeneration(mp, user, minCost, maxRoute, Integer.MAX_VALUE)) {
+                return;
             }
-            mp.optimize();
-            if (mp.get(GRB.IntAttr.Status) == 3){
+            maxRoute = 50;
+//            the routes of the node can't cover all customers
+            if (mp.infeasibility() > UserParam.tolerance){
                 this.feasible = false;
-            }else {
-//                obtain dual value
-                GRBConstr[] cons = mp.getConstrs();
-                double[] pi = new double[UserParam.nodeCount];
-                pi[0] = 0.0;
-                for (int i = 0; i < cons.length; i++) {
-                    pi[i + 1] = cons[i].get(GRB.DoubleAttr.Pi);
-                }
-                int addedRoute = pricing(pi, 200);
-                while (addedRoute>0) {
-                    GRBColumn column = new GRBColumn();
-//                    add new variable
-                    for(Route newRoute: this.routes.subList(this.routes.size()-addedRoute, this.routes.size())){
-                        column.clear();
-                        double[] columnCoeff = newRoute.toColumn(UserParam.nodeCount);
-                        column.addTerms(columnCoeff, mp.getConstrs());
-                        String name = "y" + count;
-                        count++;
-                        mp.addVar(0.0, 1.0, newRoute.cost, GRB.CONTINUOUS, column, name);
+                return;
+            }
+        } while (round++ < UserParam.cutRounds && separate(mp, user));
+        double[] pi = mp.duals();
+        this.objVal = mp.objVal();
+//        update lower bound
+        if (this.objVal > this.lowerBound) {
+            this.lowerBound = this.objVal;
+        }
+//        obtain the solution route and check fraction arc
+        this.reducedCosts = new double[this.routes.size()];
+        boolean[] active = new boolean[this.routes.size()];
+        for (int r = 0; r < this.routes.size(); r++) {
+            Route baseRoute = this.routes.get(r);
+            double varVal = mp.value(baseRoute);
+            this.reducedCosts[r] = baseRoute.reducedCost(pi, this.cuts);
+            if (varVal > UserParam.tolerance) {
+                active[r] = true;
+                for (int j = 1; j < baseRoute.path.length - 1; j++) {
+                    List<Integer> arc = Arrays.asList(baseRoute.path[j], baseRoute.path[j + 1]);
+                    if (this.fractionArc.containsKey(arc)) {
+                        this.fractionArc.compute(arc, (key, value) -> value += varVal);
+                    } else {
+                        this.fractionArc.put(arc, varVal);
                     }
+                }
+                this.solutionRoutes.add(baseRoute);
+                this.solutionValues.add(varVal);
+            }
+        }
+        this.fractionArc = this.fractionArc.entrySet().stream().
+                filter((v) -> Math.abs(v.getValue() - Math.rint(v.getValue())) > UserParam.tolerance).
+                collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (UserParam.arcFixing && this.fractionArc.size() > 0){
+            fixArcs(pi, user.upperBound());
+        }
+        this.pool.record(this.routes, this.reducedCosts, active, tick);
+        this.pool.evict();
+    }
 
-                    mp.optimize();
-                    for (int i = 0; i < cons.length; i++) {
-                        pi[i + 1] = cons[i].get(GRB.DoubleAttr.Pi);
-                    }
-                    addedRoute = pricing(pi,50);
+    //  optimize the master problem with its current cuts by column generation, or until it has been solved
+    //  iterationLimit times, return false if it was stopped because the node can't improve the incumbent
+    private boolean columnGeneration(MasterProblem mp, UserParam user, double minCost, int maxRoute,
+                                     int iterationLimit){
+        double[] pi = mp.duals();
+        double objective = mp.objVal();
+        Stabilization stabilization = new Stabilization();
+        boolean optimal = false;
+        for (int iteration = 0; !optimal && iteration < iterationLimit; iteration++) {
+            this.statistics.iterations++;
+//            price at the stabilized point until a route is negative under the duals, or at the duals themselves
+            int pending = 0;
+            while (true) {
+                double[] point = stabilization.point(pi);
+                int addedRoute = pricing(point, maxRoute, user.control);
+//                the solve is stopped, the node is left as it is, its lower bound is still valid
+                if (user.control.stopped()){
+                    this.interrupted = true;
+                    return false;
                 }
-                this.objVal = mp.get(GRB.DoubleAttr.ObjVal);
-//                update lower bound
-                if (this.objVal > this.lowerBound) {
-                    this.lowerBound = this.objVal;
+                pending += addedRoute;
+                double bound = lagrangianBound(point);
+                stabilization.update(point, bound);
+                if (point == pi) {
+                    bound = Math.max(bound, farleyBound(objective, minCost));
                 }
-                GRBVar[] vars = mp.getVars();
-//                obtain the solution route and check fraction arc
-                // mp.write("a.lp");
-                for (int i = 0; i < vars.length; i++) {
-                    double varVal = vars[i].get(GRB.DoubleAttr.X);
-                    if (varVal > UserParam.tolerance) {
-                        Route baseRoute = this.routes.get(i);
-                        for (int j = 1; j < baseRoute.path.size() - 1; j++) {
-                            List<Integer> arc = Arrays.asList(baseRoute.path.get(j), baseRoute.path.get(j + 1));
-                            if (this.fractionArc.containsKey(arc)) {
-                                this.fractionArc.compute(arc, (key, value) -> value += varVal);
-                            } else {
-                                this.fractionArc.put(arc, varVal);
-                            }
-                        }
-                        this.solutionRoutes.add(baseRoute);
-                    }
+                if (bound > this.lowerBound) {
+                    this.lowerBound = bound;
+                }
+//                the node can't improve the incumbent, so its master problem doesn't need to be optimal
+                if (this.lowerBound >= user.upperBound() - UserParam.tolerance) {
+                    this.pruned = true;
+                    return false;
+                }
+                if (point == pi) {
+                    optimal = addedRoute == 0;
+                    break;
+                }
+                if (negative(pi, pending)) {
+                    break;
                 }
-                this.fractionArc = this.fractionArc.entrySet().stream().
-                        filter((v) -> v.getValue() % 1 != 0).
-                        collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                stabilization.mispriced();
             }
-        }catch(GRBException e){
-            System.out.println("Error code: " + e.getErrorCode() + ". " +
-                    e.getMessage());
+            stabilization.reset();
+            if (pending > 0) {
+//                add new variable
+                mp.add(this.routes.subList(this.routes.size()-pending, this.routes.size()));
+                solve(mp);
+                pi = mp.duals();
+                objective = mp.objVal();
+            }
+            maxRoute = 50;
         }
+        return true;
     }
 
-    public boolean pricing(double[] pi) throws GRBException{
-        GRBEnv env1 = new GRBEnv();
-        GRBModel sp = new GRBModel(env1);
-        sp.set(GRB.IntParam.LogToConsole, 0);
-        GRBVar[] x = sp.addVars(this.arcs.size(), GRB.BINARY);
-        GRBVar[] u = sp.addVars(UserParam.nodeCount, GRB.CONTINUOUS);   //MTZ constraints
-        GRBLinExpr expr = new GRBLinExpr();
-        //  each arc subtract the corresponding cost of dual
-        for(int i=0;i<x.length;i++){
-            double edgeCost = UserParam.cost.get(this.arcs.get(i)) -
-                    pi[this.arcs.get(i).get(1)];
-            expr.addTerm(edgeCost, x[i]);
-        }
-        sp.setObjective(expr);
-        //  flow conservation
-        for(int i=0;i<UserParam.nodeCount;i++){
-            GRBLinExpr expr1 = new GRBLinExpr();
-            GRBLinExpr expr2 = new GRBLinExpr();
-            //  index of the arc containing pre and subsequent node
-            int thisNode = i;
-            List<Integer> to = this.arcs.stream().filter(v->v.get(0) == thisNode).
-                    map(v->this.arcs.indexOf(v)).collect(Collectors.toList());
-            List<Integer> from = this.arcs.stream().filter(v->v.get(1)==thisNode).
-                    map(v->this.arcs.indexOf(v)).collect(Collectors.toList());
-            for(int j: to){
-                expr1.addTerm(1.0, x[j]);
-                // all customer can only be visited mostly once
-            }
-            for(int j: from){
-                expr2.addTerm(1.0, x[j]);
-            }
-            sp.addConstr(expr1, GRB.EQUAL, expr2, "flow conservation");
-            if(i!=0){
-                sp.addConstr(expr1, GRB.LESS_EQUAL, 1.0, "single visit");
-            }else{
-                //  depot has to be visit
-                sp.addConstr(expr1, GRB.EQUAL, 1.0, "single visit");
+    //  separate the rounded capacity cuts violated by the arc flow of the relaxed solution, add them to the cut pool and
+    //  reoptimize the master problem with the cuts of the pool it doesn't have yet, return false if it has no new cut
+    private boolean separate(MasterProblem mp, UserParam user){
+        int n = user.nodeCount;
+        double[][] flow = new double[n][n];
+        for (Route route: this.routes) {
+            double value = mp.value(route);
+            if (value > UserParam.tolerance) {
+                int[] path = route.path;
+                for (int p = 0; p < path.length; p++) {
+                    flow[path[p]][p < path.length - 1 ? path[p + 1] : 0] += value;
+                }
             }
         }
-        sp.addConstr(u[0], GRB.EQUAL, 0.0, "MTZ");
-        GRBLinExpr expr1 = new GRBLinExpr();
-        for(int i=0;i<this.arcs.size();i++){
-            expr.clear();
-            int start = this.arcs.get(i).get(0);
-            int end = this.arcs.get(i).get(1);
-            if (end!=0){
-                expr1.addTerm(UserParam.demand.get(end), x[i]);
-                expr.addTerm(1.0, u[start]);
-                expr.addTerm(-1.0, u[end]);
-                expr.addTerm(UserParam.nodeCount, x[i]);
-                sp.addConstr(expr, GRB.LESS_EQUAL, UserParam.nodeCount-1, "MTZ");
-            }
+        user.cutPool.add(CutSeparation.separate(flow, UserParam.cutsPerRound, user));
+        List<Cut> added = user.cutPool.since(mp.cutCount());
+        if (added.isEmpty()) {
+            return false;
         }
-        sp.addConstr(expr1, GRB.LESS_EQUAL, UserParam.capacity, "capacity");
-        sp.optimize();
-        if(sp.get(GRB.DoubleAttr.ObjVal) < -UserParam.tolerance){
-            //  extract path form the sub problem
-            List<List<Integer>> arc = new ArrayList<List<Integer>>();
-            //  extract arc with x=1
-            for(int i=0;i<x.length;i++){
-                if (x[i].get(GRB.DoubleAttr.X) > 0.5){
-                    arc.add(this.arcs.get(i));
+        mp.addCuts(added);
+        this.statistics.cutsAdded += added.size();
+        this.cuts = user.cutPool.first(mp.cutCount());
+        solve(mp);
+        return true;
+    }
+
+    //  reduced cost arc fixing, a solution using the arc (i,j) costs at least the objective plus the reduced cost of a
+    //  route through the arc, and the other routes can't be below the reduced cost bound of the last pricing, so the
+    //  arcs whose bound reaches the upper bound are removed from 'arcs', the children of the node inherit the reduced set
+    private void fixArcs(double[] pi, double upperBound){
+        double limit = upperBound - UserParam.tolerance - this.objVal -
+                (this.user.nodeCount - 2) * Math.min(this.reducedCostBound, 0.0);
+        if (limit <= 0 || Double.isInfinite(limit)){
+            return;
+        }
+        double[][] bound = this.labeling.arcBounds(pi, limit);
+        if (bound == null){
+            return;
+        }
+        int n = this.user.nodeCount;
+        long[] arcs = arcs();
+        int[] removed = new int[n * n];
+        int count = 0;
+        for (int i=0;i<n;i++){
+            for (int j: this.successors[i]){
+                if (bound[i][j] >= limit){
+                    removed[count++] = i * n + j;
+                    clear(arcs, i * n + j);
                 }
             }
-            List<Integer> route = new ArrayList<Integer>();
-            route.add(0);
-            while(arc.size() > 0){
-                for (int i=0;i<arc.size();i++){
-                    if (Objects.equals(arc.get(i).get(0), route.get(route.size() - 1))){
-                        route.add(arc.get(i).get(1));
-                        arc.remove(i);
-                        break;
-                    }
+        }
+        this.removedArcs = Arrays.copyOf(removed, count);
+    }
+
+    //  Lagrangian bound of the duals, the routes of a solution cover each customer once, so there are at most n-1 of them,
+    //  and each of them has a reduced cost of at least the bound of the last pricing
+    public double lagrangianBound(double[] pi){
+        int n = this.user.nodeCount;
+        double bound = (n - 1) * Math.min(this.reducedCostBound, 0.0);
+        for (int i=1;i<n;i++){
+            bound += pi[i];
+        }
+        for (int k=0;k<this.cuts.size();k++){
+            bound += this.cuts.get(k).rhs * pi[n + k];
+        }
+        return bound;
+    }
+
+    //  Farley bound of the master problem of objective z under the duals of the last pricing, every route costs at least
+    //  minCost, so the ratio between its cost and its reduced cost is bounded, which bounds the optimal objective
+    public double farleyBound(double z, double minCost){
+        if (minCost <= 0 || Double.isInfinite(minCost) || z < 0 || this.reducedCostBound == Double.NEGATIVE_INFINITY){
+            return Double.NEGATIVE_INFINITY;
+        }
+        return z / (1 - Math.min(this.reducedCostBound, 0.0) / minCost);
+    }
+
+    //  lower bound of the cost of a route, which leaves the depot and returns to it over the arcs of the node
+    private double minRouteCost(){
+        double out = Double.POSITIVE_INFINITY;
+        double in = Double.POSITIVE_INFINITY;
+        double[][] cost = this.user.cost;
+        for (int j: this.successors[0]){
+            out = Math.min(out, cost[0][j]);
+        }
+        for (int i=1;i<this.user.nodeCount;i++){
+            for (int j: this.successors[i]){
+                if (j == 0){
+                    in = Math.min(in, cost[i][0]);
                 }
             }
-            route.remove(route.size()-1);
-            this.routes.add(new Route(route));
-            return true;
-        }else{
-            return false;
         }
+        return out + in;
     }
 
-    public int pricing(double[] pi, int maxRoute){
-        int addedRoute = 0;
-        Map<Integer, List<Label>> Q = new HashMap<Integer, List<Label>>();//permanent labels
-        Map<Integer, List<Label>> T = new HashMap<Integer, List<Label>>();//treated labels
-        List<Label> initLabel = new ArrayList<Label>();
-        initLabel.add(0, new Label(-1, 0.0, 0.0, Collections.singletonList(0)));
-//          any feasible route with reduce cost<0 will be added to Q[0]
-        Q.put(0, new ArrayList<Label>());
-        T.put(0, initLabel);
-        for (int i=1;i<UserParam.nodeCount;i++){
-            Q.put(i, new ArrayList<Label>());
-            T.put(i, new ArrayList<Label>());
+    //  if one of the last 'count' routes of the node has a negative reduced cost under the duals pi
+    private boolean negative(double[] pi, int count){
+        for (Route route: this.routes.subList(this.routes.size()-count, this.routes.size())){
+            if (route.reducedCost(pi, this.cuts) < Labeling.threshold){
+                return true;
+            }
         }
-//        if there is any label untreated
-        while(T.entrySet().stream().anyMatch(v-> v.getValue().size()>0)){
-//            find lexicographically minimal label
-            Map<Integer, Label> temp = new HashMap<Integer, Label>();
-            for (int i: T.keySet()){
-                if (T.get(i).size()>0) {
-                    Collections.sort(T.get(i));
-                    temp.put(i, T.get(i).get(0));
-                }
+        return false;
+    }
+
+    private void solve(MasterProblem mp){
+        long start = System.nanoTime();
+        MasterProblem.Status status = mp.solve();
+        this.statistics.master(System.nanoTime() - start);
+        if (status != MasterProblem.Status.OPTIMAL){
+            throw new IllegalStateException("the master problem ended with status " + status);
+        }
+    }
+
+    public int pricing(double[] pi, int maxRoute, SolveControl control){
+        this.reducedCostBound = Double.NEGATIVE_INFINITY;
+        if (this.labeling == null){
+            this.labeling = new Labeling(this.user, this.successors);
+            this.heuristic = new PricingHeuristic(this.user, this.successors);
+        }
+        this.labeling.cuts = this.cuts;
+        this.labeling.control = control;
+        List<Route> generated = new ArrayList<Route>();
+        int addedRoute;
+        if (UserParam.heuristicPricing){
+            Telemetry.PricingEvent event = new Telemetry.PricingEvent();
+            event.begin();
+            long start = System.nanoTime();
+            this.labeling.reducedCost(pi);
+            this.heuristic.pricing(this.labeling.reducedCost, maxRoute, this.routes, generated);
+            if ((addedRoute = priced(event, "heuristic", start, null, generated)) > 0){
+                return addedRoute;
             }
-//             find the node that has the lexicographically minimal label
-            int bestNode = temp.entrySet().stream().
-                    sorted(Map.Entry.comparingByValue()).collect(Collectors.toList()).get(0).getKey();
-//            extend labels
-//            find the successor
-            List<List<Integer>> arc = this.arcs.stream().
-                    filter(v -> v.get(0)==bestNode).collect(Collectors.toList());
-            for(Label label: T.get(bestNode)){
-                for(List<Integer> a: arc){
-//                      the label can't get reach the pre node
-                    int successor = a.get(1);
-                    if(successor != label.pre){
-                        List<Integer> newPath = new ArrayList<Integer>(label.path);
-//                        generate new label
-                        Label newLabel;
-                        if(successor != 0) {
-                            newPath.add(successor);
-                            newLabel = new Label(bestNode,
-                                    label.cost+UserParam.cost.get(Arrays.asList(bestNode,successor))-pi[successor],
-                                    label.weight + UserParam.demand.get(successor), newPath);
-                        }else{
-                            newLabel = new Label(bestNode,
-                                    label.cost + UserParam.cost.get(Arrays.asList(bestNode, successor)),
-                                    label.weight, newPath);
-                        }
-//                        check capacity constraint
-                        if(newLabel.weight > UserParam.capacity){
-                            continue;
-                        }
-//                        check if the successor == 0
-                        if (successor == 0){
-                            if (newLabel.cost < -0.1){
-                                addedRoute++;
-                                this.routes.add(new Route(newLabel.path));
-//                                termination condition
-                                if(addedRoute > maxRoute){
-                                    return addedRoute;
-                                }
-                            }
-                        }else {
-//                            dominance check
-                            List<Label> originLabels = Q.get(successor);
-//                            first label of the node
-                            if (originLabels.size() == 0) {
-                                newLabel.rank = 2;
-                            } else if (originLabels.stream().noneMatch(l -> l.compareTo(newLabel) < 0)) {
-                                //  not dominated by any label
-                                if (newLabel.weight + UserParam.demand.get(bestNode) > UserParam.capacity){
-                                    newLabel.rank = 2;
-                                }else{
-                                    newLabel.rank = 1;
-                                }
-                            }else{
-//                                being dominated by a label
-                                List<Label> dominantLabels = originLabels.stream().filter(l-> l.compareTo(newLabel) < 0)
-                                        .collect(Collectors.toList());
-//                                no dominant label is strongly dominant
-                                if(dominantLabels.stream().noneMatch(l->l.rank==2)){
-                                    //no dominant labels has the same predecessor
-                                    if(dominantLabels.stream().noneMatch(l->l.pre==bestNode)){
-                                        newLabel.rank = 0;
-                                    }else{
-                                        continue;
-                                    }
-                                }else{
-                                    continue;
-                                }
-                            }
-//                            add the label to the sets
-                            Q.get(successor).add(newLabel);
-                            T.get(successor).add(newLabel);
-                        }
-                    }
-                }
+        }
+        if (UserParam.pricingArcs > 0){
+            generated.clear();
+            Telemetry.PricingEvent event = new Telemetry.PricingEvent();
+            event.begin();
+            long start = System.nanoTime();
+            this.labeling.pricing(pi, maxRoute, generated, UserParam.pricingArcs);
+            if ((addedRoute = priced(event, "reduced graph", start, this.labeling, generated)) > 0){
+                return addedRoute;
+            }
+        }
+        generated.clear();
+        Telemetry.PricingEvent event = new Telemetry.PricingEvent();
+        event.begin();
+        long start = System.nanoTime();
+        this.labeling.pricing(pi, maxRoute, generated);
+        this.reducedCostBound = this.labeling.reducedCostBound();
+        return priced(event, "exact", start, this.labeling, generated);
+    }
+
+    //  add the routes of a pricing stage that started at 'start', count the stage in the statistics of the node and
+    //  commit its event, 'labeling' is null for the heuristics, return the number of added routes
+    private int priced(Telemetry.PricingEvent event, String stage, long start, Labeling labeling, List<Route> generated){
+        int addedRoute = addRoutes(generated);
+        this.statistics.pricing(System.nanoTime() - start, labeling, addedRoute);
+        Telemetry.pricing(event, this, stage, labeling, generated.size(), addedRoute);
+        return addedRoute;
+    }
+
+    //  add the generated routes to the column pool and to the routes of the node, a route already in the pool is
+    //  replaced by the route of the pool, and skipped if the node already has it, return the number of added routes
+    private int addRoutes(List<Route> generated){
+        int addedRoute = 0;
+        for (Route route: generated){
+            Route pooled = this.pool.add(route);
+            if (this.inView.add(pooled)){
+                this.routes.add(pooled);
+                addedRoute++;
             }
-            T.get(bestNode).clear();
         }
         return addedRoute;
     }
@@ -0,0 +1,156 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+/*
+The class chooses the fractional arc on which a node is branched, the rule is set by UserParam.branchingRule
+    MOST_FRACTIONAL takes the arc whose flow is closest to 0.5
+    STRONG evaluates the UserParam.strongCandidates most fractional arcs, both children of each arc are optimized
+    with at most UserParam.strongIterations iterations of column generation, and the arc with the best product of
+    the objective gains of its children is chosen, a child proven infeasible or pruned has an infinite gain, since
+    it is the best outcome of a branching, so an arc with such a child is taken at once
+    PSEUDO_COST estimates the gains of the children of every fractional arc from its pseudo-costs, the average gain
+    per unit of flow change of the children already branched on the arc, the average over all arcs is used for an
+    arc that has never been branched on
+    RELIABILITY is PSEUDO_COST for the arcs branched on at least UserParam.reliability times in both directions, and
+    evaluates the other arcs like STRONG, at most UserParam.strongCandidates of them
+the pseudo-costs are learned from every optimized child and from each evaluation of strong branching, one instance
+    is shared by all workers, 'evaluations' and 'nanos' count the children evaluated by strong branching and the
+    time spent on them, so the cost of a rule can be compared with the nodes it saves
+*/
+public class Branching {
+    enum Rule {MOST_FRACTIONAL, STRONG, PSEUDO_COST, RELIABILITY}
+    static final double minGain = 1e-6;     // a gain is counted at least this much, so the product still ranks arcs
+    private static final int ENFORCE = 0;
+    private static final int REMOVE = 1;
+
+    // the sum of the gains per unit of flow change and the number of children of each arc, in both directions
+    private final Map<List<Integer>, double[]> pseudoCost = new HashMap<List<Integer>, double[]>();
+    private final double[] total = new double[4];
+    AtomicLong evaluations = new AtomicLong();
+    AtomicLong nanos = new AtomicLong();
+
+    // the arc on which the optimized node is branched, the node has at least one fractional arc
+    public List<Integer> select(BnbNode node, MasterProblem mp, UserParam user){
+        List<List<Integer>> candidates = new ArrayList<List<Integer>>(node.fractionArc.keySet());
+        candidates.sort(Comparator.comparingDouble(arc -> Math.abs(fraction(node.fractionArc.get(arc)) - 0.5)));
+        switch (UserParam.branchingRule){
+            case STRONG:
+                return best(node, candidates.subList(0, Math.min(UserParam.strongCandidates, candidates.size())),
+                        Integer.MAX_VALUE, mp, user);
+            case PSEUDO_COST:
+                return best(node, candidates, 0, mp, user);
+            case RELIABILITY:
+                return best(node, candidates, UserParam.reliability, mp, user);
+            default:
+                return candidates.get(0);
+        }
+    }
+
+    // the candidate with the best score, the candidates with less than 'reliability' children in one direction are
+    // evaluated by strong branching, as long as fewer than UserParam.strongCandidates have been evaluated
+    private List<Integer> best(BnbNode node, List<List<Integer>> candidates, int reliability, MasterProblem mp,
+                               UserParam user){
+        List<Integer> best = candidates.get(0);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int evaluated = 0;
+        for (List<Integer> arc: candidates){
+            double[] gain;
+            if (evaluated < UserParam.strongCandidates && count(arc) < reliability){
+                gain = evaluate(node, arc, mp, user);
+                evaluated++;
+            }else{
+                gain = estimate(arc, node.fractionArc.get(arc));
+            }
+            double score = Math.max(gain[ENFORCE], minGain) * Math.max(gain[REMOVE], minGain);
+            if (score > bestScore){
+                bestScore = score;
+                best = arc;
+            }
+//            a child of the arc can be pruned, so no arc can be better
+            if (score == Double.POSITIVE_INFINITY){
+                break;
+            }
+        }
+        return best;
+    }
+
+    // optimize both children of the arc with a limited column generation, return the gains of their objectives,
+    // infinite for a child that can't improve the incumbent, only the other children give pseudo-costs
+    private double[] evaluate(BnbNode node, List<Integer> arc, MasterProblem mp, UserParam user){
+        long start = System.nanoTime();
+        double[] gain = new double[2];
+        for (int direction=ENFORCE;direction<=REMOVE;direction++){
+            BnbNode child = node.child(arc, direction == ENFORCE);
+            child.columnGeneration(mp, user, UserParam.strongIterations);
+            if (child.interrupted){
+                break;
+            }
+            if (child.pruned || !child.feasible){
+                gain[direction] = Double.POSITIVE_INFINITY;
+            }else{
+                gain[direction] = Math.max(child.objVal - node.objVal, 0.0);
+                record(arc, direction, child.branchFlow, gain[direction]);
+            }
+            this.evaluations.incrementAndGet();
+        }
+        this.nanos.addAndGet(System.nanoTime() - start);
+        return gain;
+    }
+
+    // learn the pseudo-cost of the branching arc of an optimized child
+    public void update(BnbNode child){
+        if (child.branchArc == null || !child.feasible){
+            return;
+        }
+        double objVal = child.pruned ? child.lowerBound : child.objVal;
+        record(child.branchArc, child.enforced ? ENFORCE : REMOVE, child.branchFlow,
+                Math.max(objVal - child.parentObjVal, 0.0));
+    }
+
+    private synchronized void record(List<Integer> arc, int direction, double flow, double gain){
+        double change = direction == ENFORCE ? 1 - fraction(flow) : fraction(flow);
+        double[] cost = this.pseudoCost.computeIfAbsent(arc, key -> new double[4]);
+        cost[2 * direction] += gain / change;
+        cost[2 * direction + 1]++;
+        this.total[2 * direction] += gain / change;
+        this.total[2 * direction + 1]++;
+    }
+
+    // the number of children of the arc in the direction with fewer of them
+    private synchronized double count(List<Integer> arc){
+        double[] cost = this.pseudoCost.get(arc);
+        return cost == null ? 0 : Math.min(cost[1], cost[3]);
+    }
+
+    // the gains of the children of the arc estimated by its pseudo-costs
+    private synchronized double[] estimate(List<Integer> arc, double flow){
+        double[] cost = this.pseudoCost.get(arc);
+        double[] gain = new double[2];
+        for (int direction=ENFORCE;direction<=REMOVE;direction++){
+            double perUnit;
+            if (cost != null && cost[2 * direction + 1] > 0){
+                perUnit = cost[2 * direction] / cost[2 * direction + 1];
+            }else if (this.total[2 * direction + 1] > 0){
+                perUnit = this.total[2 * direction] / this.total[2 * direction + 1];
+            }else{
+                perUnit = 1.0;
+            }
+            gain[direction] = perUnit * (direction == ENFORCE ? 1 - fraction(flow) : fraction(flow));
+        }
+        return gain;
+    }
+
+    private static double fraction(double flow){
+        return flow - Math.floor(flow);
+    }
+
+    @Override
+    public String toString(){
+        return "strong branching: " + this.evaluations.get() + " evaluated children, " +
+                String.format("%.2f", this.nanos.get() / 1e9) + "s";
+    }
+}
@@ -0,0 +1,508 @@
+package BnP_Framework;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+/*
+The class saves the state of the search to an append-only file, so a run that is killed resumes from the last write
+    the state is the tree of the open nodes, each node is a record with the id of its parent, its branching decision
+    and the bounds it inherited, and the arcs removed by arc fixing in a node are recorded when it is branched, the
+    routes of the column pool and the routes it evicted, the cuts of the cut pool and every improved incumbent
+    the workers only append the records to a buffer in memory, when a node enters the pool, a route or a cut enters
+    its pool, and so on, every UserParam.checkpointInterval seconds a background thread writes the buffer at the end of
+    the file, as a frame of its length, its CRC32 and the records, so a write never stalls the search, and a frame
+    that is cut short or corrupted by the end of the run is ignored when the file is read
+the file starts with a header of the magic number, the version and the vertex count, capacity and fingerprint of the
+    instance, a checkpoint of another instance is an error, all numbers are big-endian
+start() writes the current state as a new file, which replaces the old one once it is complete, then the records
+    are appended to it until stop(), restore() reads the file and rebuilds the pools, the incumbent and the open
+    nodes with their ancestors, the nodes keep their ids, so the records written after the resume continue the tree,
+    and since start() rewrites the file the records of the explored subtrees are dropped at each resume
+    the open nodes pruned by an incumbent are not recorded as closed, they are dropped by restore() since they can't
+    improve the restored incumbent, a node that was being optimized when the run was killed is optimized again, and
+    the pseudo-costs of branching are not saved but learned again
+    a node is rebuilt from its branching decision and the arcs removed by arc fixing in its ancestors, which is all
+    that defines its arcs, the route fixed by diving is not recorded since the nodes of a dive never enter the pool
+*/
+public class Checkpoint {
+    static final int MAGIC = 0x42504350;    // "BPCP"
+    static final int VERSION = 1;
+    static final byte NODE = 1;     // id, parent, branch arc, enforced, lower bound, estimate, branch flow, parent objective
+    static final byte FIXED = 2;    // id, the arcs removed by arc fixing
+    static final byte CLOSED = 3;   // id of a branched node
+    static final byte ROUTE = 4;    // id, cost, path
+    static final byte EVICTED = 5;  // ids of the evicted routes
+    static final byte CUT = 6;      // customers
+    static final byte INCUMBENT = 7;    // cost, paths and costs of the routes
+    final Path path;
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);   // the records not yet written
+    private FileChannel channel;
+    private Thread writer;
+    private boolean stopped;
+    private IOException failure;    // the error of the background writer, thrown by stop()
+
+    Checkpoint(Path path){
+        this.path = path;
+    }
+
+    public boolean exists(){
+        try{
+            return Files.exists(this.path) && Files.size(this.path) > 0;
+        }catch (IOException e){
+            throw new UncheckedIOException("can't read checkpoint " + this.path, e);
+        }
+    }
+
+    // a hash of the data of the instance, to recognize the instance of a checkpoint
+    static long fingerprint(UserParam user){
+        long hash = Double.hashCode(user.capacity);
+        hash = 31 * hash + Arrays.hashCode(user.demand);
+        for (double[] row: user.cost){
+            hash = 31 * hash + Arrays.hashCode(row);
+        }
+        return hash;
+    }
+
+    /*
+    write the current state of the pools, the incumbent and the open nodes to the file, and append the changes every
+        UserParam.checkpointInterval seconds until stop(), the pools and UserParam report their changes to this
+        checkpoint from now on
+     */
+    public void start(UserParam user, NodePool unexplored){
+        Path temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try{
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)){
+                ByteBuffer header = ByteBuffer.allocate(4 + 4 + 4 + 8 + 8);
+                header.putInt(MAGIC).putInt(VERSION).putInt(user.nodeCount).putDouble(user.capacity).
+                        putLong(fingerprint(user));
+                header.flip();
+                while (header.hasRemaining()){
+                    channel.write(header);
+                }
+                snapshot(user, unexplored);
+                frame(channel);
+                channel.force(true);
+            }
+            Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.channel = FileChannel.open(this.path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write checkpoint " + this.path, e);
+        }
+        user.checkpoint = this;
+        user.columnPool.journal = this;
+        user.cutPool.journal = this;
+        unexplored.journal = this;
+        this.writer = new Thread(this::write, "bnb-checkpoint");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // the records of the current state, the routes of the pool, the cuts, the incumbent, and the open nodes with their
+    // ancestors in the order of their ids, so a parent is always read before its children
+    private synchronized void snapshot(UserParam user, NodePool unexplored){
+        for (Route route: user.columnPool.routes()){
+            route(route);
+        }
+        for (Cut cut: user.cutPool.first(user.cutPool.size())){
+            cut(cut);
+        }
+        if (user.bestRoutes() != null){
+            incumbent(user.upperBound(), user.bestRoutes());
+        }
+        List<BnbNode> open = unexplored.nodes();
+        Set<BnbNode> tree = new HashSet<BnbNode>();
+        for (BnbNode node: open){
+            BnbNode ancestor = node;
+            while (ancestor != null && tree.add(ancestor)){
+                ancestor = ancestor.parent;
+            }
+        }
+        List<BnbNode> nodes = new ArrayList<BnbNode>(tree);
+        nodes.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        Set<BnbNode> openSet = new HashSet<BnbNode>(open);
+        for (BnbNode node: nodes){
+            opened(node);
+            if (!openSet.contains(node)){
+                branched(node);
+            }
+        }
+    }
+
+    // write the buffered records, flush the file and stop the background writer
+    public void stop(){
+        synchronized (this){
+            this.stopped = true;
+            notifyAll();
+        }
+        try{
+            this.writer.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        try{
+            if (this.failure == null){
+                frame(this.channel);
+                this.channel.force(false);
+            }
+            this.channel.close();
+        }catch (IOException e){
+            this.failure = e;
+        }
+        if (this.failure != null){
+            throw new UncheckedIOException("can't write checkpoint " + this.path, this.failure);
+        }
+    }
+
+    // the background writer, it writes the buffer every UserParam.checkpointInterval seconds until stop()
+    private void write(){
+        long interval = Math.max((long) (UserParam.checkpointInterval * 1000), 1);
+        while (true){
+            synchronized (this){
+                long until = System.currentTimeMillis() + interval;
+                long remaining;
+                while (!this.stopped && (remaining = until - System.currentTimeMillis()) > 0){
+                    try{
+                        wait(remaining);
+                    }catch (InterruptedException e){
+                        return;
+                    }
+                }
+                if (this.stopped){
+                    return;
+                }
+            }
+            try{
+                frame(this.channel);
+                this.channel.force(false);
+            }catch (IOException e){
+                this.failure = e;
+                return;
+            }
+        }
+    }
+
+    // write the buffered records as a frame, the buffer is swapped under the lock and written without it
+    private void frame(FileChannel channel) throws IOException{
+        ByteBuffer records;
+        synchronized (this){
+            if (this.buffer.position() == 0){
+                return;
+            }
+            records = this.buffer;
+            this.buffer = ByteBuffer.allocate(records.capacity());
+        }
+        records.flip();
+        CRC32 crc = new CRC32();
+        crc.update(records.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putInt(records.remaining()).putInt((int) crc.getValue());
+        header.flip();
+        ByteBuffer[] frame = {header, records};
+        while (records.hasRemaining()){
+            channel.write(frame);
+        }
+    }
+
+    // make room for 'bytes' more bytes in the buffer
+    private ByteBuffer reserve(int bytes){
+        if (this.buffer.remaining() < bytes){
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + bytes));
+            this.buffer.flip();
+            larger.put(this.buffer);
+            this.buffer = larger;
+        }
+        return this.buffer;
+    }
+
+    // a node entered the pool of unexplored nodes
+    public synchronized void opened(BnbNode node){
+        if (node.fixedRoute != null){
+            throw new IllegalStateException("the node " + node.sequence + " of a dive can't be checkpointed");
+        }
+        ByteBuffer buffer = reserve(1 + 8 + 8 + 4 + 4 + 1 + 4 * 8);
+        buffer.put(NODE).putLong(node.sequence).putLong(node.parent == null ? -1 : node.parent.sequence);
+        buffer.putInt(node.branchArc == null ? -1 : node.branchArc.get(0));
+        buffer.putInt(node.branchArc == null ? -1 : node.branchArc.get(1));
+        buffer.put((byte) (node.enforced ? 1 : 0));
+        buffer.putDouble(node.lowerBound).putDouble(node.estimate).putDouble(node.branchFlow).
+                putDouble(node.parentObjVal);
+    }
+
+    // a node was branched, its children are already in the pool
+    public synchronized void branched(BnbNode node){
+        int[] removed = node.removedArcs;
+        if (removed != null && removed.length > 0){
+            ByteBuffer buffer = reserve(1 + 8 + 4 + 4 * removed.length);
+            buffer.put(FIXED).putLong(node.sequence).putInt(removed.length);
+            for (int id: removed){
+                buffer.putInt(id);
+            }
+        }
+        reserve(1 + 8).put(CLOSED).putLong(node.sequence);
+    }
+
+    public synchronized void route(Route route){
+        ByteBuffer buffer = reserve(1 + 4 + 8 + 4 + 4 * route.path.length);
+        buffer.put(ROUTE).putInt(route.id).putDouble(route.cost).putInt(route.path.length);
+        for (int vertex: route.path){
+            buffer.putInt(vertex);
+        }
+    }
+
+    public synchronized void evicted(int[] ids){
+        ByteBuffer buffer = reserve(1 + 4 + 4 * ids.length);
+        buffer.put(EVICTED).putInt(ids.length);
+        for (int id: ids){
+            buffer.putInt(id);
+        }
+    }
+
+    public synchronized void cut(Cut cut){
+        ByteBuffer buffer = reserve(1 + 4 + 4 * cut.customers.length);
+        buffer.put(CUT).putInt(cut.customers.length);
+        for (int customer: cut.customers){
+            buffer.putInt(customer);
+        }
+    }
+
+    // an improved incumbent, the records of two workers may be out of order, so the cheapest one is restored
+    public synchronized void incumbent(double cost, List<Route> routes){
+        int size = 1 + 8 + 4;
+        for (Route route: routes){
+            size += 8 + 4 + 4 * route.path.length;
+        }
+        ByteBuffer buffer = reserve(size);
+        buffer.put(INCUMBENT).putDouble(cost).putInt(routes.size());
+        for (Route route: routes){
+            buffer.putDouble(route.cost).putInt(route.path.length);
+            for (int vertex: route.path){
+                buffer.putInt(vertex);
+            }
+        }
+    }
+
+    // the node of a NODE record, with the arcs removed in it once it is branched
+    private static class NodeRecord {
+        long id;
+        long parent;
+        int start;
+        int end;
+        boolean enforced;
+        double lowerBound;
+        double estimate;
+        double branchFlow;
+        double parentObjVal;
+        int[] removedArcs;
+        boolean closed;
+    }
+
+    /*
+    read the checkpoint and restore its state, the routes, cuts and incumbent are added to the pools and to user,
+        the open nodes are added to 'unexplored' with their ids, and their ancestors are rebuilt as branched nodes
+        return the number of restored open nodes, a file that can't be read fails with an UncheckedIOException and a
+        malformed file or the checkpoint of another instance with an IllegalArgumentException
+     */
+    public int restore(UserParam user, NodePool unexplored){
+        Map<Long, NodeRecord> nodes = new TreeMap<Long, NodeRecord>();
+        Map<Integer, Route> routes = new TreeMap<Integer, Route>();
+        List<Cut> cuts = new ArrayList<Cut>();
+        double incumbentCost = Double.POSITIVE_INFINITY;
+        List<Route> incumbent = null;
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE){
+                throw malformed("larger than 2GB");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.BIG_ENDIAN);
+            if (size < 4 + 4 + 4 + 8 + 8 || map.getInt() != MAGIC){
+                throw malformed("not a checkpoint");
+            }
+            int version = map.getInt();
+            if (version != VERSION){
+                throw malformed("unsupported version " + version);
+            }
+            if (map.getInt() != user.nodeCount || map.getDouble() != user.capacity ||
+                    map.getLong() != fingerprint(user)){
+                throw new IllegalArgumentException("checkpoint " + this.path + " belongs to another instance");
+            }
+//            the frames up to the first one that is incomplete or corrupted
+            while (map.remaining() >= 8){
+                int length = map.getInt();
+                int crc = map.getInt();
+                if (length < 0 || length > map.remaining()){
+                    break;
+                }
+                ByteBuffer records = map.slice();
+                records.limit(length);
+                CRC32 check = new CRC32();
+                check.update(records.duplicate());
+                if ((int) check.getValue() != crc){
+                    break;
+                }
+                map.position(map.position() + length);
+                while (records.hasRemaining()){
+                    byte type = records.get();
+                    switch (type){
+                        case NODE:
+                            NodeRecord node = new NodeRecord();
+                            node.id = records.getLong();
+                            node.parent = records.getLong();
+                            node.start = records.getInt();
+                            node.end = records.getInt();
+                            node.enforced = records.get() != 0;
+                            node.lowerBound = records.getDouble();
+                            node.estimate = records.getDouble();
+                            node.branchFlow = records.getDouble();
+                            node.parentObjVal = records.getDouble();
+                            nodes.put(node.id, node);
+                            break;
+                        case FIXED:
+                            NodeRecord fixed = record(nodes, records.getLong());
+                            fixed.removedArcs = new int[records.getInt()];
+                            for (int k=0;k<fixed.removedArcs.length;k++){
+                                fixed.removedArcs[k] = records.getInt();
+                            }
+                            break;
+                        case CLOSED:
+                            record(nodes, records.getLong()).closed = true;
+                            break;
+                        case ROUTE:
+                            int id = records.getInt();
+                            double cost = records.getDouble();
+                            Route route = new Route(path(records), cost, user.nodeCount);
+                            route.id = id;
+                            routes.put(id, route);
+                            break;
+                        case EVICTED:
+                            int count = records.getInt();
+                            for (int k=0;k<count;k++){
+                                routes.remove(records.getInt());
+                            }
+                            break;
+                        case CUT:
+                            int[] customers = new int[records.getInt()];
+                            for (int k=0;k<customers.length;k++){
+                                customers[k] = records.getInt();
+                            }
+                            cuts.add(new Cut(customers, user));
+                            break;
+                        case INCUMBENT:
+                            double objVal = records.getDouble();
+                            List<Route> solution = new ArrayList<Route>();
+                            int routeCount = records.getInt();
+                            for (int k=0;k<routeCount;k++){
+                                double routeCost = records.getDouble();
+                                solution.add(new Route(path(records), routeCost, user.nodeCount));
+                            }
+                            if (objVal < incumbentCost){
+                                incumbentCost = objVal;
+                                incumbent = solution;
+                            }
+                            break;
+                        default:
+                            throw malformed("unknown record " + type);
+                    }
+                }
+            }
+        }catch (IOException e){
+            throw new UncheckedIOException("can't read checkpoint " + this.path, e);
+        }catch (RuntimeException e){
+            if (e instanceof IllegalArgumentException){
+                throw e;
+            }
+            throw malformed("invalid record, " + e);
+        }
+        for (Route route: routes.values()){
+            user.columnPool.add(route);
+        }
+        user.cutPool.add(cuts);
+        if (incumbent != null){
+            user.updateIncumbent(incumbentCost, incumbent);
+        }
+        return rebuild(nodes, user, unexplored);
+    }
+
+    // rebuild the open nodes and their ancestors in the order of their ids, a parent has a lower id than its children
+    private int rebuild(Map<Long, NodeRecord> records, UserParam user, NodePool unexplored){
+        Set<Long> needed = new HashSet<Long>();
+        for (NodeRecord record: records.values()){
+            if (record.closed || record.lowerBound >= user.upperBound() - UserParam.tolerance){
+                continue;
+            }
+            NodeRecord ancestor = record;
+            while (ancestor != null && needed.add(ancestor.id)){
+                ancestor = ancestor.parent < 0 ? null : record(records, ancestor.parent);
+            }
+        }
+        Map<Long, BnbNode> built = new HashMap<Long, BnbNode>();
+        List<BnbNode> branched = new ArrayList<BnbNode>();
+        int open = 0;
+        for (NodeRecord record: records.values()){
+            if (!needed.contains(record.id)){
+                continue;
+            }
+            BnbNode node;
+            if (record.parent < 0){
+                node = new BnbNode(user);
+            }else{
+                node = new BnbNode(built.get(record.parent));
+                node.branchArc = Arrays.asList(record.start, record.end);
+                node.enforced = record.enforced;
+            }
+            node.sequence = record.id;
+            node.lowerBound = record.lowerBound;
+            node.estimate = record.estimate;
+            node.branchFlow = record.branchFlow;
+            node.parentObjVal = record.parentObjVal;
+            node.removedArcs = record.removedArcs;
+            built.put(record.id, node);
+            if (record.closed){
+                branched.add(node);
+            }else{
+                unexplored.restore(node);
+                open++;
+            }
+        }
+        for (BnbNode node: branched){
+            node.release();
+        }
+        return open;
+    }
+
+    private NodeRecord record(Map<Long, NodeRecord> nodes, long id){
+        NodeRecord record = nodes.get(id);
+        if (record == null){
+            throw malformed("unknown node " + id);
+        }
+        return record;
+    }
+
+    private static int[] path(ByteBuffer records){
+        int[] path = new int[records.getInt()];
+        for (int k=0;k<path.length;k++){
+            path[k] = records.getInt();
+        }
+        return path;
+    }
+
+    private IllegalArgumentException malformed(String message){
+        return new IllegalArgumentException("malformed checkpoint " + this.path + ": " + message);
+    }
+}
@@ -0,0 +1,104 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/*
+The class is the global pool of routes shared by all nodes of the branching tree and all workers
+    each route is stored once, add() returns the route already in the pool if the same path was generated before,
+    so pricing in one subtree reuses the columns found in another one instead of adding duplicates
+    view() returns the routes of the pool that only use the arcs of a node, which are the columns of its master problem
+    the pool counts the optimized nodes with tick(), a route is active in a tick if it has a positive value in the
+    solution of the node, when the pool exceeds UserParam.poolSize the routes that have been inactive for the longest
+    time are evicted first, and among them the ones with the highest reduced cost, routes visiting a single customer
+    are never evicted, record() stores the activity and the reduced costs of the routes of an optimized node under the
+    lock of the pool, so evict() sorts on keys no other worker changes meanwhile
+    each route gets the next id when it is added, unless it already has one because it was restored from a checkpoint,
+    and the added and evicted routes are reported to the checkpoint of 'journal' if it is set
+*/
+public class ColumnPool {
+    private final List<Route> routes = new ArrayList<Route>();
+    private final Map<Route, Route> index = new HashMap<Route, Route>();
+    private int tick;
+    private int nextId;
+    Checkpoint journal;
+
+    public synchronized int tick(){
+        return ++this.tick;
+    }
+
+    // add a route to the pool, return the route of the pool with the same path
+    public synchronized Route add(Route route){
+        Route existing = this.index.putIfAbsent(route, route);
+        if (existing != null){
+            return existing;
+        }
+        route.lastActive = this.tick;
+        if (route.id < 0){
+            route.id = this.nextId;
+        }
+        this.nextId = Math.max(this.nextId, route.id + 1);
+        this.routes.add(route);
+        if (this.journal != null){
+            this.journal.route(route);
+        }
+        return route;
+    }
+
+    // the routes of the pool whose arcs are all in the bitset of arc ids of a node
+    public synchronized List<Route> view(long[] arcs){
+        List<Route> view = new ArrayList<Route>();
+        for (Route route: this.routes){
+            if (route.compatible(arcs)){
+                view.add(route);
+            }
+        }
+        return view;
+    }
+
+    // record the reduced cost of each route of an optimized node, and the tick in which the active ones had a positive
+    // value
+    public synchronized void record(List<Route> routes, double[] reducedCost, boolean[] active, int tick){
+        for (int r=0;r<routes.size();r++){
+            Route route = routes.get(r);
+            route.reducedCost = reducedCost[r];
+            if (active[r]){
+                route.lastActive = Math.max(route.lastActive, tick);
+            }
+        }
+    }
+
+    // evict inactive routes until the pool is back to 80% of UserParam.poolSize
+    public synchronized void evict(){
+        if (this.routes.size() <= UserParam.poolSize){
+            return;
+        }
+        List<Route> candidates = new ArrayList<Route>();
+        for (Route route: this.routes){
+            if (route.path.length > 2 && route.lastActive < this.tick){
+                candidates.add(route);
+            }
+        }
+        candidates.sort(Comparator.<Route>comparingInt(route -> route.lastActive).
+                thenComparing(Comparator.<Route>comparingDouble(route -> route.reducedCost).reversed()));
+        int excess = this.routes.size() - UserParam.poolSize * 4 / 5;
+        List<Route> evicted = candidates.subList(0, Math.min(excess, candidates.size()));
+        for (Route route: evicted){
+            route.evicted = true;
+            this.index.remove(route);
+        }
+        this.routes.removeIf(route -> route.evicted);
+        if (this.journal != null && !evicted.isEmpty()){
+            this.journal.evicted(evicted.stream().mapToInt(route -> route.id).toArray());
+        }
+    }
+
+    public synchronized List<Route> routes(){
+        return new ArrayList<Route>(this.routes);
+    }
+
+    public synchronized int size(){
+        return this.routes.size();
+    }
+}
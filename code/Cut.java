@@ -0,0 +1,61 @@
+package BnP_Framework;
+import java.util.Arrays;
+/*
+Each instance of this class is a rounded capacity cut of a set S of customers
+    the vehicles serving S have to enter it at least k(S) = ceil(demand(S)/capacity) times, so the number of arcs of
+    a solution entering S is at least 'rhs' = k(S)
+    as a row of the master problem, the coefficient of a route is the number of its arcs entering S, and the dual of
+    the row is subtracted from the reduced cost of every arc entering S, so pricing doesn't change
+    two cuts are equal if they have the same set, so the cut pool can find duplicates
+    the cut is built for the instance of a solve, its demand and capacity are those of the UserParam of the solve
+*/
+public class Cut {
+    boolean[] inSet;    // if each vertex is in S, the depot never is
+    int[] customers;    // the customers of S in increasing order
+    double rhs;
+    int hash;
+
+    Cut(int[] customers, UserParam user){
+        this.customers = customers.clone();
+        Arrays.sort(this.customers);
+        this.inSet = new boolean[user.nodeCount];
+        double demand = 0.0;
+        for (int customer: this.customers){
+            this.inSet[customer] = true;
+            demand += user.demand[customer];
+        }
+        this.rhs = Math.ceil(demand / user.capacity - UserParam.tolerance);
+        this.hash = Arrays.hashCode(this.customers);
+    }
+
+    public boolean enters(int i, int j){
+        return !this.inSet[i] && this.inSet[j];
+    }
+
+    // the number of arcs of the route entering S, including the one back to the depot
+    public double coefficient(Route route){
+        int[] path = route.path;
+        double count = 0.0;
+        for (int p=0;p<path.length;p++){
+            int next = p < path.length - 1 ? path[p+1] : 0;
+            if (enters(path[p], next)){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString(){
+        return Arrays.toString(this.customers) + ">=" + this.rhs;
+    }
+    @Override
+    public boolean equals(Object other){
+        return other instanceof Cut && this.hash == ((Cut) other).hash &&
+                Arrays.equals(this.customers, ((Cut) other).customers);
+    }
+    @Override
+    public int hashCode(){
+        return this.hash;
+    }
+}
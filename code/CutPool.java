@@ -0,0 +1,46 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+/*
+The class is the global pool of cuts shared by all nodes of the branching tree and all workers
+    rounded capacity cuts are valid for every node, so a cut separated in one node is added to the master problem of
+    every node optimized later, the pool only grows, and the master problem of a worker holds the first cuts of the
+    pool in the same order, so it only asks for the cuts that were added since it was last synchronized
+    the added cuts are reported to the checkpoint of 'journal' if it is set
+*/
+public class CutPool {
+    private final List<Cut> cuts = new ArrayList<Cut>();
+    private final Set<Cut> index = new HashSet<Cut>();
+    Checkpoint journal;
+
+    // add the cuts that are not yet in the pool, return the number of added cuts
+    public synchronized int add(List<Cut> cuts){
+        int added = 0;
+        for (Cut cut: cuts){
+            if (this.index.add(cut)){
+                this.cuts.add(cut);
+                added++;
+                if (this.journal != null){
+                    this.journal.cut(cut);
+                }
+            }
+        }
+        return added;
+    }
+
+    // the cuts from position 'from' of the pool
+    public synchronized List<Cut> since(int from){
+        return new ArrayList<Cut>(this.cuts.subList(from, this.cuts.size()));
+    }
+
+    // the first 'count' cuts of the pool
+    public synchronized List<Cut> first(int count){
+        return new ArrayList<Cut>(this.cuts.subList(0, count));
+    }
+
+    public synchronized int size(){
+        return this.cuts.size();
+    }
+}
@@ -0,0 +1,124 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+/*
+The class separates rounded capacity cuts on the arc flow of a relaxed solution, flow[i][j] is the sum of the values
+    of the routes using the arc (i,j)
+    a set S is violated if the flow entering it is lower than k(S), the candidate sets are the connected components of
+    the customers in the support graph of the flow, and the sets grown greedily from each customer, adding at each
+    step the customer outside of S with the largest flow between it and S, which keeps the flow entering S low
+    separate() returns at most maxCuts cuts of the instance of user, the most violated first
+*/
+public class CutSeparation {
+    static final double minViolation = 1e-2;   // a set is only cut if its flow is below k(S) by this much
+    static final double support = 1e-6;     // the arcs with a lower flow are not part of the support graph
+
+    public static List<Cut> separate(double[][] flow, int maxCuts, UserParam user){
+        int n = user.nodeCount;
+        double[] inflow = new double[n];    // the flow entering each customer
+        for (int i=0;i<n;i++){
+            for (int j=1;j<n;j++){
+                inflow[j] += flow[i][j];
+            }
+        }
+        Map<Cut, Double> violated = new HashMap<Cut, Double>();
+        for (int[] component: components(flow)){
+            check(component, component.length, flow, violated, user);
+        }
+        boolean[] inSet = new boolean[n];
+        int[] set = new int[n];
+        for (int seed=1;seed<n;seed++){
+            Arrays.fill(inSet, false);
+            inSet[seed] = true;
+            set[0] = seed;
+            int size = 1;
+            double entering = inflow[seed];
+            double demand = user.demand[seed];
+            while (size < n - 1){
+                if (Math.ceil(demand / user.capacity - UserParam.tolerance) - entering > minViolation){
+                    check(set, size, flow, violated, user);
+                }
+                int best = -1;
+                double bestFlow = support;
+                for (int v=1;v<n;v++){
+                    if (inSet[v]){
+                        continue;
+                    }
+                    double between = 0.0;
+                    for (int k=0;k<size;k++){
+                        between += flow[set[k]][v] + flow[v][set[k]];
+                    }
+                    if (between > bestFlow){
+                        bestFlow = between;
+                        best = v;
+                    }
+                }
+                if (best < 0){
+                    break;
+                }
+//                the arcs from best into S stop entering S, the arcs entering best from outside start to
+                for (int k=0;k<size;k++){
+                    entering -= flow[best][set[k]] + flow[set[k]][best];
+                }
+                entering += inflow[best];
+                inSet[best] = true;
+                set[size++] = best;
+                demand += user.demand[best];
+            }
+        }
+        List<Cut> cuts = new ArrayList<Cut>(violated.keySet());
+        cuts.sort(Comparator.comparingDouble(cut -> -violated.get(cut)));
+        return cuts.subList(0, Math.min(maxCuts, cuts.size()));
+    }
+
+    // record the set of the first 'size' customers if its cut is violated
+    private static void check(int[] set, int size, double[][] flow, Map<Cut, Double> violated, UserParam user){
+        Cut cut = new Cut(Arrays.copyOf(set, size), user);
+        double entering = 0.0;
+        for (int i=0;i<flow.length;i++){
+            if (cut.inSet[i]){
+                continue;
+            }
+            for (int j: cut.customers){
+                entering += flow[i][j];
+            }
+        }
+        if (cut.rhs - entering > minViolation){
+            violated.put(cut, cut.rhs - entering);
+        }
+    }
+
+    // the connected components of the customers in the support graph of the flow
+    private static List<int[]> components(double[][] flow){
+        int n = flow.length;
+        int[] component = new int[n];
+        List<int[]> components = new ArrayList<int[]>();
+        int[] stack = new int[n];
+        for (int s=1;s<n;s++){
+            if (component[s] != 0){
+                continue;
+            }
+            int label = components.size() + 1;
+            List<Integer> members = new ArrayList<Integer>();
+            int top = 0;
+            stack[top++] = s;
+            component[s] = label;
+            while (top > 0){
+                int v = stack[--top];
+                members.add(v);
+                for (int w=1;w<n;w++){
+                    if (component[w] == 0 && flow[v][w] + flow[w][v] > support){
+                        component[w] = label;
+                        stack[top++] = w;
+                    }
+                }
+            }
+            components.add(members.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return components;
+    }
+}
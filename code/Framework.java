@@ -1,104 +1,302 @@
 package BnP_Framework;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 /*
-This is the program entry, the initial solution is generated by visiting each customer once
-The exploration follows Breadth First Search, which means we optimize the root node, and 2 nodes in depth 1, and...
-Everytime an integer solution is found, we print it in the console, you can also comment it if you don't want to see it
+This is the program entry, it solves the instance of its first argument with class Solver, which generates the initial
+    solution by visiting each customer once
+    a directory as first argument, or "-" to read the paths of the instances from the standard input, solves the
+    instances in batch mode with class BatchSolver, the optional second argument is the number of instances solved at
+    the same time, the optional third one the time limit of each instance in seconds, a line is printed for each
+    solved instance and a summary with the throughput at the end
+The exploration follows Breadth First Search by default, which means we optimize the root node, and 2 nodes in depth 1,
+    and..., other node selection strategies can be chosen by UserParam.nodeSelection
+A node is only branched if its lower bound is below the incumbent, and whenever the incumbent improves, the nodes
+    in the pool that can't improve it are dropped
+Everytime an integer solution is found, it is given to the log of the solve, which main() prints in the console, the
+    classes of the solver never print themselves, so concurrent solves don't mix their lines
+The arc a node is branched on is chosen by the rule of UserParam.branchingRule, see class Branching
+The primal heuristics of class PrimalHeuristic run on the root and then on every UserParam.heuristicFrequency-th
+    optimized node, so an incumbent is usually known long before a node has an integer solution
+With UserParam.threads > 1 the nodes are explored by several workers that take them from a shared NodePool, each worker
+    optimizes the nodes with its own MasterProblem, whose LP solver is UserParam.lpSolver, and prunes with the latest
+    incumbent of UserParam
+    the workers only share the pools, whose locks are held for short updates, and each optimized node claims its index
+    before the primal heuristics are considered, so a single worker runs each dive, more workers also explore more
+    nodes, the ones a single worker would have pruned with an incumbent found meanwhile, so they pay off when the tree
+    has many open nodes that take long to optimize and each worker has a core, on small trees, or when the cores are
+    taken by the other solves of a batch, one worker is faster, the parameter 'threads' of SolveBenchmark compares them
+A node keeps only its branching decision and a link to its parent once it is branched, see BnbNode.release(), so the
+    memory of the search grows with the open nodes and not with the explored tree
+    with UserParam.deterministic the search runs in rounds, the nodes of a round are optimized in parallel and then
+    branched in pool order, so the explored tree doesn't depend on the timing of the workers
+With a checkpoint file, given as third argument or by UserParam.checkpointFile, the open nodes, the pools and the
+    incumbent are saved while the search runs, and a search started with an existing checkpoint resumes from it, see
+    class Checkpoint
+Every branched node is reported to the Telemetry of UserParam, which records it for Java Flight Recorder, writes it to
+    the trace file given as second argument or by UserParam.traceFile, and logs the progress of the search
+The workers stop when the SolveControl of UserParam is stopped by a limit or a cancellation, a node whose column
+    generation was interrupted, or that was taken after the stop, is put back in the pool, so the pool holds the open
+    nodes of the search when explore() returns
  */
 public class Framework {
     public static void main(String[] args){
-        UserParam user = new UserParam("vrp_bp_30.json");
-        //  initialize routes, we set each node has a unique routes, which is {0,i} for each customer i
-        List<Route> initRoutes = new ArrayList<Route>();
-        //UserParam.capacity = 500;
-        for (int i = 1; i< UserParam.nodeCount; i++){
-             initRoutes.add(new Route(Arrays.asList(0, i)));
+        //  the instance file is the first argument, .json, .vrp or .bin, the trace file the optional second one, "-"
+        //  for none, and the checkpoint file the optional third one
+        String file = args.length > 0 ? args[0] : "vrp_bp_30.json";
+        if (file.equals("-") || Files.isDirectory(Paths.get(file))){
+            batch(args);
+            return;
         }
-        List<BnbNode> unexplored = new ArrayList<BnbNode>();
-        List<BnbNode> branchTree = new ArrayList<BnbNode>();
-        unexplored.add(new BnbNode(UserParam.arcs, initRoutes));
-        int times = 0;
-        long startTime = System.currentTimeMillis();
-        while (unexplored.size() > 0){
-            BnbNode currentNode = unexplored.get(0); //exploring node
-            currentNode.columnGeneration();
-//            check if the model is feasible
-            if(currentNode.feasible) {
-//                check if integer condition is satisfied
-                if (currentNode.fractionArc.size() == 0) {
-                    System.out.println("Integer solution found: " + currentNode.objVal +
-                            ", current best solution: " + user.upperBound);
-                    //  update the upperbound
-                    if (currentNode.objVal < user.upperBound) {
-                        user.upperBound = currentNode.objVal;
-                        user.bestRoutes = currentNode.solutionRoutes;
-                    }
-                } else {
-//                    check if the solution is valuable(obj < upperbound)
-                    if (currentNode.objVal <= user.upperBound) {
-//                        start branching
-//                        find a fraction arc that the closest to 0.5
-                        List<Integer> branchArc = new ArrayList<>();
-                        double m = 1.0;
-                        for (List<Integer> arc : currentNode.fractionArc.keySet()) {
-                            if (Math.abs(currentNode.fractionArc.get(arc) - 0.5) < m) {
-                                branchArc = arc;
-                                m = Math.abs(currentNode.fractionArc.get(arc) - 0.5);
-                            }
+        Instance instance = Instance.read(Paths.get(file));
+        Solver.Options options = new Solver.Options().listener(new Solver.Listener(){
+            @Override
+            public void message(String line){
+                System.out.println(line);
+            }
+        });
+        if (args.length > 1){
+            options.traceFile(args[1].equals("-") ? null : args[1]);
+        }
+        if (args.length > 2){
+            options.checkpointFile(args[2]);
+        }
+        Solver.Result result = Solver.solve(instance, options);
+        System.out.println("runtime(s): "+String.format("%.2f", result.seconds));
+        System.out.println("the best route is: "+(result.routes == null ? null : result.routes.stream().
+                map(Arrays::toString).collect(Collectors.joining(", ", "[", "]")))+ "\nuppder bound: "+result.objective);
+        System.out.println("number of nodes explored: "+result.nodes);
+        if (result.status != Solver.Status.OPTIMAL){
+            System.out.println("stopped: "+result.status+", best bound: "+result.bound);
+        }
+    }
+
+    //  solve the instances of a directory, or those of the paths read from the standard input, without trace and
+    //  checkpoint, by default as many at the same time as the processors allow with the workers of each solve
+    private static void batch(String[] args){
+        int solves = args.length > 1 ? Integer.parseInt(args[1]) :
+                Math.max(1, Runtime.getRuntime().availableProcessors() / Math.max(UserParam.threads, 1));
+        double timeLimit = args.length > 2 ? Double.parseDouble(args[2]) : Double.POSITIVE_INFINITY;
+        Iterator<Path> instances;
+        if (args[0].equals("-")){
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            instances = reader.lines().map(String::trim).filter(line -> !line.isEmpty()).map(Paths::get).iterator();
+        }else{
+            instances = BatchSolver.instances(Paths.get(args[0])).iterator();
+        }
+        BatchSolver batch = new BatchSolver(solves, name -> new Solver.Options().timeLimit(timeLimit).traceFile(null).
+                checkpointFile(null));
+        BatchSolver.Report report = batch.solve(instances, entry -> System.out.println("solved " + entry));
+        System.out.println(report);
+    }
+
+    //  every worker takes a node from the pool, optimizes it and adds its children to the pool, the calling thread
+    //  is one of the workers, and the exploration ends when the pool is empty and no worker is busy
+    //  the first error of a worker stops the others, it is thrown once every worker is joined
+    static int explore(NodePool unexplored, UserParam user){
+        AtomicInteger times = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+//        the optimized nodes, each worker claims the index of its node before deciding to run the heuristics, so a
+//        dive that takes long doesn't let the other workers see the same index and dive too
+        AtomicInteger optimized = new AtomicInteger();
+        Runnable worker = () -> {
+            MasterProblem mp = null;
+            try{
+                mp = MasterProblem.create(user);
+                BnbNode currentNode;
+                while ((currentNode = unexplored.take()) != null){  //exploring node
+                    try{
+//                        the incumbent may have improved since the node was added
+                        if (currentNode.lowerBound >= user.upperBound() - UserParam.tolerance){
+                            continue;
                         }
-//                        new branch, enforce the visit of branchArc
-//                        cut the route that not contains this arc
-                        List<Route> branchRoute1 = new ArrayList<>();
-                        for (Route p : currentNode.routes) {
-//                            return true means the route has to be deleted
-                            if (!p.notContainsArc(branchArc)) {
-                                branchRoute1.add(p);
-                            }
+                        if (user.control.stopped()){
+                            unexplored.restore(currentNode);
+                            break;
                         }
-//                        cut the arcs that not contains this arc
-                        List<List<Integer>> branchChildArc1 = new ArrayList<>();
-                        for (List<Integer> p : currentNode.arcs) {
-                            if (!Objects.equals(p.get(0), branchArc.get(0))) {
-                                if (!Objects.equals(p.get(1), branchArc.get(1))) {
-//                                    both the start and end node are different
-                                    branchChildArc1.add(p);
-                                }
-                            } else if (Objects.equals(p.get(1), branchArc.get(1))) {
-                                branchChildArc1.add(p);
-                            }
+                        user.telemetry.begin(currentNode);
+                        currentNode.columnGeneration(mp, user);
+                        if (currentNode.interrupted){
+                            unexplored.restore(currentNode);
+                            break;
                         }
-                        BnbNode enforceVisit = new BnbNode(branchChildArc1, branchRoute1, currentNode);
-                        unexplored.add(enforceVisit);
-                        currentNode.child.add(enforceVisit);
-//                        new branch, enforcing not visiting the arc
-                        List<Route> branchRoute2 = new ArrayList<>();
-                        for (Route p : currentNode.routes) {
-                            // return true means the route has to be deleted
-                            if (!p.containsArc(branchArc)) {
-                                branchRoute2.add(p);
-                            }
+                        if (heuristic(optimized.getAndIncrement())){
+                            PrimalHeuristic.run(currentNode, mp, user, unexplored);
                         }
-                        List<List<Integer>> branchChildArc2 = new ArrayList<>();
-                        for (List<Integer> p : currentNode.arcs) {
-                            if (!p.equals(branchArc)) {
-                                branchChildArc2.add(p);
-                            }
+                        branch(currentNode, mp, user, unexplored);
+                        unexplored.finished(currentNode);
+                        user.telemetry.node(currentNode, user, unexplored);
+                        currentNode.release();
+                        times.incrementAndGet();
+                        user.control.node(user, unexplored);
+                    }catch (RuntimeException | Error e){
+//                        the node stays open, so the pool and the checkpoint still hold the unexplored tree
+                        unexplored.restore(currentNode);
+                        throw e;
+                    }finally{
+                        unexplored.done(currentNode);
+                    }
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                user.control.stop(Solver.Status.CANCELLED);
+            }catch (RuntimeException | Error e){
+                failure.compareAndSet(null, e);
+                user.control.stop(Solver.Status.CANCELLED);
+            }finally{
+                dispose(mp);
+            }
+        };
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 1; i < UserParam.threads; i++){
+            Thread thread = new Thread(worker, "bnb-worker-" + i);
+            thread.start();
+            workers.add(thread);
+        }
+        worker.run();
+//        an interrupted caller stops the workers, but still waits for them to leave the pool and the master problems
+        boolean interrupted = false;
+        for (Thread thread: workers){
+            while (thread.isAlive()){
+                try{
+                    thread.join();
+                }catch (InterruptedException e){
+                    interrupted = true;
+                    user.control.stop(Solver.Status.CANCELLED);
+                }
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null){
+            throw new IllegalStateException("node optimization failed", failure.get());
+        }
+        return times.get();
+    }
+
+    //  deterministic exploration, the nodes of a round are optimized in parallel, then they are branched one by one
+    //  in the order of the pool, so the incumbent and the children don't depend on which worker finishes first
+    static int exploreRounds(NodePool unexplored, UserParam user){
+        ExecutorService executor = Executors.newFixedThreadPool(UserParam.threads);
+        MasterProblem[] mp = new MasterProblem[UserParam.threads];
+        int times = 0;
+        boolean interrupted = false;
+        try{
+            for (int i = 0; i < mp.length; i++){
+                mp[i] = MasterProblem.create(user);
+            }
+            List<BnbNode> round;
+            while (!user.control.stopped() && (round = unexplored.take(UserParam.threads)).size() > 0){
+                List<Future<?>> optimized = new ArrayList<Future<?>>();
+                for (BnbNode currentNode: round){
+                    if (currentNode.lowerBound >= user.upperBound() - UserParam.tolerance){
+                        unexplored.finished(currentNode);
+                    }
+                }
+                round.removeIf(node -> node.lowerBound >= user.upperBound() - UserParam.tolerance);
+                for (int i = 0; i < round.size(); i++){
+                    BnbNode currentNode = round.get(i);
+                    MasterProblem master = mp[i];
+                    user.telemetry.begin(currentNode);
+                    optimized.add(executor.submit(() -> currentNode.columnGeneration(master, user)));
+                }
+//                an interrupt stops the solve, the nodes of the round are still waited for, so they are restored below
+                for (Future<?> future: optimized){
+                    while (true){
+                        try{
+                            future.get();
+                            break;
+                        }catch (InterruptedException e){
+                            interrupted = true;
+                            user.control.stop(Solver.Status.CANCELLED);
                         }
-                        BnbNode enforceNotVisit = new BnbNode(branchChildArc2, branchRoute2, currentNode);
-                        unexplored.add(enforceNotVisit);
-                        currentNode.child.add(enforceNotVisit);
                     }
                 }
+//                strong branching evaluates the children with the master problem of the first worker
+                for (BnbNode currentNode: round){
+                    if (currentNode.interrupted){
+                        unexplored.restore(currentNode);
+                        continue;
+                    }
+                    if (heuristic(times)){
+                        PrimalHeuristic.run(currentNode, mp[0], user, unexplored);
+                    }
+                    branch(currentNode, mp[0], user, unexplored);
+                    unexplored.finished(currentNode);
+                    user.telemetry.node(currentNode, user, unexplored);
+                    currentNode.release();
+                    times++;
+                    user.control.node(user, unexplored);
+                }
+            }
+        }catch (ExecutionException e){
+            throw new IllegalStateException("node optimization failed", e.getCause());
+        }finally{
+            if (interrupted){
+                Thread.currentThread().interrupt();
+            }
+            executor.shutdown();
+            for (MasterProblem master: mp){
+                dispose(master);
+            }
+        }
+        return times;
+    }
+
+    //  if the primal heuristics run on the node optimized after 'times' other nodes
+    static boolean heuristic(int times){
+        return UserParam.heuristicFrequency > 0 && times % UserParam.heuristicFrequency == 0;
+    }
+
+    static void dispose(MasterProblem mp){
+        if (mp != null){
+            mp.dispose();
+        }
+    }
+
+    //  check the optimized node, update the incumbent if its solution is integer, otherwise add its two children
+    //  to the pool if its lower bound is below the incumbent
+    static void branch(BnbNode currentNode, MasterProblem mp, UserParam user, NodePool unexplored){
+        user.branching.update(currentNode);
+//        check if the model is feasible, and if column generation hasn't proven that the node can't improve the incumbent
+        if(currentNode.feasible && !currentNode.pruned) {
+//            check if integer condition is satisfied
+            if (currentNode.fractionArc.size() == 0) {
+                user.control.message("Integer solution found: " + currentNode.objVal +
+                        ", current best solution: " + user.upperBound());
+                //  update the upperbound, and drop the unexplored nodes that can't improve it
+                if (user.updateIncumbent(currentNode.objVal, currentNode.solutionRoutes)){
+                    unexplored.prune(currentNode.objVal);
+                }
+            } else {
+//                check if the solution is valuable(lower bound < upperbound), otherwise the children would be pruned
+                if (currentNode.lowerBound < user.upperBound() - UserParam.tolerance) {
+//                    start branching
+                    List<Integer> branchArc = user.branching.select(currentNode, mp, user);
+//                    new branch, enforce the visit of branchArc, the routes of each child are the routes
+//                    of the column pool that only use its arcs
+                    unexplored.add(currentNode.child(branchArc, true));
+//                    new branch, enforcing not visiting the arc
+                    unexplored.add(currentNode.child(branchArc, false));
+                }
             }
-            unexplored.remove(0);
-//            you can comment the code of the next line to save memory
-            //branchTree.add(currentNode);
-            times++;
         }
-        long endTime = System.currentTimeMillis();
-        System.out.println("runtime(s): "+String.format("%.2f", (endTime-startTime)/1000d));
-        System.out.println("the best route is: "+user.bestRoutes+ "\nuppder bound: "+user.upperBound);
-        System.out.println("number of nodes explored: "+times);
+//        the node is only recorded as branched once its children are in the pool
+        if (user.checkpoint != null){
+            user.checkpoint.branched(currentNode);
+        }
     }
 }
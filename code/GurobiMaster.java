@@ -0,0 +1,248 @@
+package BnP_Framework;
+import gurobi.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+/*
+The class is the Gurobi implementation of the master problem, the Gurobi environment is created once per worker
+    and the model is kept across the nodes it optimizes
+    every route ever loaded is a column of the model, load() makes the columns of the routes of a node available
+    and sets the upper bound of the other columns to 0, so the simplex restarts from the basis of the previous node
+    instead of solving a new model from scratch
+    the columns of the routes evicted from the column pool are removed from the model when the next node is loaded
+    dispose() releases the native memory of the model and the environment when the worker stops
+    each cut is a >= row with its own artificial column, a route column has a coefficient in the cut rows its arcs
+    enter
+    a GRBException is rethrown as an IllegalStateException with the error code of Gurobi
+*/
+public class GurobiMaster implements MasterProblem {
+    UserParam user;     // the solve of the worker
+    GRBEnv env;
+    GRBModel model;
+    GRBConstr[] cons;
+    GRBVar[] artificial;
+    double bigM;
+    List<Cut> cuts = new ArrayList<Cut>();
+    List<GRBConstr> cutCons = new ArrayList<GRBConstr>();
+    List<GRBVar> cutArtificial = new ArrayList<GRBVar>();
+    List<GRBVar> vars = new ArrayList<GRBVar>();
+    List<Route> columns = new ArrayList<Route>();
+    Map<Route, Integer> index = new IdentityHashMap<Route, Integer>();  // column index of each route
+    boolean[] active = new boolean[0];  // if the column is available in the current node
+
+    GurobiMaster(UserParam user) throws GRBException{
+        this.user = user;
+        this.env = new GRBEnv();
+        this.model = new GRBModel(this.env);
+        this.model.set(GRB.IntParam.LogToConsole, 0);
+        if (UserParam.threads > 1){
+            this.model.set(GRB.IntParam.Threads, 1);    // the workers already use all cores
+        }
+        int customer = user.nodeCount - 1;
+        this.cons = new GRBConstr[customer];
+        this.artificial = new GRBVar[customer];
+        for (int i=1;i<user.nodeCount;i++){
+            this.bigM += user.cost[0][i] + user.cost[i][0];
+        }
+        GRBLinExpr expr = new GRBLinExpr();
+        for (int i=0;i<customer;i++){
+            this.artificial[i] = this.model.addVar(0.0, GRB.INFINITY, this.bigM, GRB.CONTINUOUS, "a" + (i + 1));
+            expr.clear();
+            expr.addTerm(1.0, this.artificial[i]);
+            this.cons[i] = this.model.addConstr(expr, GRB.EQUAL, 1.0, "con");
+        }
+    }
+
+    static IllegalStateException error(GRBException e){
+        return new IllegalStateException("Error code: " + e.getErrorCode() + ". " + e.getMessage(), e);
+    }
+
+    @Override
+    public void load(List<Route> routes){
+        try{
+            purge();
+            boolean[] available = new boolean[this.columns.size() + routes.size()];
+            for (Route route: routes){
+                Integer column = this.index.get(route);
+                if (column == null){
+                    column = add(route);
+                }
+                available[column] = true;
+            }
+            for (int i=0;i<this.columns.size();i++){
+                boolean before = i < this.active.length && this.active[i];
+                if (available[i] != before){
+                    this.vars.get(i).set(GRB.DoubleAttr.UB, available[i] ? 1.0 : 0.0);
+                }
+            }
+            this.active = available;
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    // remove the columns of the routes evicted from the column pool
+    private void purge() throws GRBException{
+        int kept = 0;
+        for (int i=0;i<this.columns.size();i++){
+            Route route = this.columns.get(i);
+            if (route.evicted){
+                this.model.remove(this.vars.get(i));
+                this.index.remove(route);
+                continue;
+            }
+            this.columns.set(kept, route);
+            this.vars.set(kept, this.vars.get(i));
+            this.index.put(route, kept);
+            if (i < this.active.length){
+                this.active[kept] = this.active[i];
+            }
+            kept++;
+        }
+        this.columns.subList(kept, this.columns.size()).clear();
+        this.vars.subList(kept, this.vars.size()).clear();
+    }
+
+    @Override
+    public void add(List<Route> routes){
+        try{
+            for (Route route: routes){
+                int column = add(route);
+                if (column >= this.active.length){
+                    this.active = Arrays.copyOf(this.active, Math.max(column + 1, this.active.length * 2));
+                }
+                this.active[column] = true;
+            }
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    private int add(Route route) throws GRBException{
+        int column = this.columns.size();
+        GRBColumn coeff = new GRBColumn();
+        GRBConstr[] rows = new GRBConstr[route.customers.length];
+        for (int i=0;i<rows.length;i++){
+            rows[i] = this.cons[route.customers[i]-1];
+        }
+        coeff.addTerms(route.visitCount, rows);
+        for (int k=0;k<this.cuts.size();k++){
+            double coefficient = this.cuts.get(k).coefficient(route);
+            if (coefficient != 0.0){
+                coeff.addTerm(coefficient, this.cutCons.get(k));
+            }
+        }
+        this.vars.add(this.model.addVar(0.0, 1.0, route.cost, GRB.CONTINUOUS, coeff, "y" + (column + 1)));
+        this.columns.add(route);
+        this.index.put(route, column);
+        return column;
+    }
+
+    @Override
+    public void addCuts(List<Cut> cuts){
+        try{
+            for (Cut cut: cuts){
+                int k = this.cuts.size();
+                GRBVar artificial = this.model.addVar(0.0, GRB.INFINITY, this.bigM, GRB.CONTINUOUS, "s" + (k + 1));
+                GRBLinExpr expr = new GRBLinExpr();
+                expr.addTerm(1.0, artificial);
+                for (int i=0;i<this.columns.size();i++){
+                    double coefficient = cut.coefficient(this.columns.get(i));
+                    if (coefficient != 0.0){
+                        expr.addTerm(coefficient, this.vars.get(i));
+                    }
+                }
+                this.cutCons.add(this.model.addConstr(expr, GRB.GREATER_EQUAL, cut.rhs, "cut" + (k + 1)));
+                this.cutArtificial.add(artificial);
+                this.cuts.add(cut);
+            }
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public int cutCount(){
+        return this.cuts.size();
+    }
+
+    @Override
+    public Status solve(){
+        try{
+            this.model.optimize();
+            switch (this.model.get(GRB.IntAttr.Status)){
+                case GRB.Status.OPTIMAL:
+                    return Status.OPTIMAL;
+                case GRB.Status.INFEASIBLE:
+                    return Status.INFEASIBLE;
+                case GRB.Status.UNBOUNDED:
+                    return Status.UNBOUNDED;
+                default:
+                    return Status.ITERATION_LIMIT;
+            }
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public double objVal(){
+        try{
+            return this.model.get(GRB.DoubleAttr.ObjVal);
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public double[] duals(){
+        try{
+            double[] pi = new double[this.user.nodeCount + this.cuts.size()];
+            double[] value = this.model.get(GRB.DoubleAttr.Pi, this.cons);
+            System.arraycopy(value, 0, pi, 1, value.length);
+            for (int k=0;k<this.cuts.size();k++){
+                pi[this.user.nodeCount + k] = this.cutCons.get(k).get(GRB.DoubleAttr.Pi);
+            }
+            return pi;
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public double value(Route route){
+        try{
+            return this.vars.get(this.index.get(route)).get(GRB.DoubleAttr.X);
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public double infeasibility(){
+        try{
+            double sum = 0.0;
+            for (double value: this.model.get(GRB.DoubleAttr.X, this.artificial)){
+                sum += value;
+            }
+            for (GRBVar artificial: this.cutArtificial){
+                sum += artificial.get(GRB.DoubleAttr.X);
+            }
+            return sum;
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+
+    @Override
+    public void dispose(){
+        try{
+            this.model.dispose();
+            this.env.dispose();
+        }catch (GRBException e){
+            throw error(e);
+        }
+    }
+}
@@ -0,0 +1,646 @@
+package BnP_Framework;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+/*
+The class loads the data of an instance, the vertex count, the demands, the capacity and the dense cost matrix, where
+    vertex 0 is the depot and cost[i][j] is infinity when the arc (i,j) does not exist, the format is chosen by the
+    extension of the file
+    .json is the format of the bundled instances, an object with "demand" mapping each customer to its demand, "arcs"
+    the list of arcs [i, j], "cost" the costs of the arcs in the same order and "capacity", it is read by a streaming
+    parser, the arcs and costs are buffered in primitive arrays, so no object tree of the O(n^2) entries is built
+    .vrp is the CVRPLIB format, the costs are computed into the matrix from the NODE_COORD_SECTION for the
+    EUC_2D, CEIL_2D and ATT edge weight types, rounded as in TSPLIB, or read from the EDGE_WEIGHT_SECTION of an EXPLICIT
+    instance in any of the full, lower and upper row formats, the depot of the DEPOT_SECTION becomes vertex 0 and the
+    other vertices keep their order, the number of vehicles is not limited
+    .bin is the binary format written by writeBinary(), a header with the magic number, the version, the vertex count
+    and the capacity, then the demands and the cost matrix row by row as big-endian doubles, the file is memory-mapped
+    and the rows are copied in bulk, so repeated loads of a large instance skip all parsing
+a file that can't be read fails with an UncheckedIOException, and a malformed file with an IllegalArgumentException
+    that names the file and the position of the error, main() converts an instance of any format to the binary format
+*/
+public class Instance {
+    static final int MAGIC = 0x43565250;    // "CVRP"
+    static final int VERSION = 1;
+    static final int HEADER = 4 + 4 + 4 + 8;
+    int nodeCount;
+    double capacity;
+    double[] demand;
+    double[][] cost;
+
+    Instance(int nodeCount, double capacity, double[] demand, double[][] cost){
+        this.nodeCount = nodeCount;
+        this.capacity = capacity;
+        this.demand = demand;
+        this.cost = cost;
+    }
+
+    // convert the instance args[0] to the binary instance args[1]
+    public static void main(String[] args){
+        if (args.length != 2){
+            System.out.println("usage: Instance <instance.json|instance.vrp|instance.bin> <instance.bin>");
+            return;
+        }
+        read(Paths.get(args[0])).writeBinary(Paths.get(args[1]));
+    }
+
+    public static Instance read(Path path){
+        String name = path.getFileName().toString().toLowerCase();
+        try{
+            if (name.endsWith(".json")){
+                try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+                    return new JsonInstance(path, reader).read();
+                }
+            }else if (name.endsWith(".vrp")){
+                try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)){
+                    return readVrp(path, reader);
+                }
+            }else if (name.endsWith(".bin")){
+                return readBinary(path);
+            }
+        }catch (IOException e){
+            throw new UncheckedIOException("can't read instance " + path, e);
+        }
+        throw new IllegalArgumentException("unknown instance format " + path + ", expected .json, .vrp or .bin");
+    }
+
+    static IllegalArgumentException malformed(Path path, String message){
+        return new IllegalArgumentException("malformed instance " + path + ": " + message);
+    }
+
+    // check the data shared by all formats
+    private static Instance validate(Path path, int nodeCount, double capacity, double[] demand, double[][] cost){
+        if (nodeCount < 2){
+            throw malformed(path, "no customer");
+        }
+        if (!(capacity > 0)){
+            throw malformed(path, "missing or non-positive capacity");
+        }
+        for (int i=1;i<nodeCount;i++){
+            if (!(demand[i] >= 0)){
+                throw malformed(path, "missing or negative demand of customer " + i);
+            }
+        }
+        demand[0] = 0.0;
+        for (int i=0;i<nodeCount;i++){
+            cost[i][i] = Double.POSITIVE_INFINITY;
+        }
+        return new Instance(nodeCount, capacity, demand, cost);
+    }
+
+    /*
+    the pull parser of the JSON instances, it reads the characters through a buffer and only keeps the values of the
+        four known keys, any other value is skipped
+     */
+    private static class JsonInstance {
+        final Path path;
+        final Reader reader;
+        final char[] buffer = new char[1 << 16];
+        int length;
+        int position;
+        long offset;    // the offset of the buffer in the file
+        final StringBuilder token = new StringBuilder();
+
+        JsonInstance(Path path, Reader reader){
+            this.path = path;
+            this.reader = reader;
+        }
+
+        Instance read() throws IOException{
+            int[] customers = new int[16];
+            double[] demands = new double[16];
+            int customerCount = 0;
+            int[] arcs = new int[64];   // the tail and head of each arc
+            int arcCount = 0;
+            double[] costs = new double[32];
+            int costCount = 0;
+            double capacity = Double.NaN;
+            boolean hasArcs = false;
+            expect('{');
+            if (peek() != '}'){
+                do {
+                    String key = string();
+                    expect(':');
+                    switch (key){
+                        case "demand":
+                            expect('{');
+                            if (peek() != '}'){
+                                do {
+                                    if (customerCount == customers.length){
+                                        customers = Arrays.copyOf(customers, 2 * customerCount);
+                                        demands = Arrays.copyOf(demands, 2 * customerCount);
+                                    }
+                                    customers[customerCount] = integer(string());
+                                    expect(':');
+                                    demands[customerCount++] = number();
+                                } while (next(','));
+                            }
+                            expect('}');
+                            break;
+                        case "arcs":
+                            hasArcs = true;
+                            expect('[');
+                            if (peek() != ']'){
+                                do {
+                                    if (2 * arcCount == arcs.length){
+                                        arcs = Arrays.copyOf(arcs, 2 * arcs.length);
+                                    }
+                                    expect('[');
+                                    arcs[2 * arcCount] = (int) integer(number());
+                                    expect(',');
+                                    arcs[2 * arcCount + 1] = (int) integer(number());
+                                    expect(']');
+                                    arcCount++;
+                                } while (next(','));
+                            }
+                            expect(']');
+                            break;
+                        case "cost":
+                            expect('[');
+                            if (peek() != ']'){
+                                do {
+                                    if (costCount == costs.length){
+                                        costs = Arrays.copyOf(costs, 2 * costCount);
+                                    }
+                                    costs[costCount++] = number();
+                                } while (next(','));
+                            }
+                            expect(']');
+                            break;
+                        case "capacity":
+                            capacity = number();
+                            break;
+                        default:
+                            skip();
+                    }
+                } while (next(','));
+            }
+            expect('}');
+            if (!hasArcs){
+                throw malformed(this.path, "missing \"arcs\"");
+            }
+            if (arcCount != costCount){
+                throw malformed(this.path, arcCount + " arcs but " + costCount + " costs");
+            }
+//            the customers are numbered from 1 to their count
+            int nodeCount = customerCount + 1;
+            double[] demand = new double[nodeCount];
+            Arrays.fill(demand, Double.NaN);
+            for (int k=0;k<customerCount;k++){
+                if (customers[k] < 1 || customers[k] >= nodeCount){
+                    throw malformed(this.path, "customer " + customers[k] + " out of range 1.." + customerCount);
+                }
+                demand[customers[k]] = demands[k];
+            }
+            double[][] cost = new double[nodeCount][nodeCount];
+            for (double[] row: cost){
+                Arrays.fill(row, Double.POSITIVE_INFINITY);
+            }
+            for (int k=0;k<arcCount;k++){
+                int start = arcs[2 * k];
+                int end = arcs[2 * k + 1];
+                if (start < 0 || start >= nodeCount || end < 0 || end >= nodeCount){
+                    throw malformed(this.path, "arc [" + start + ", " + end + "] out of range");
+                }
+                cost[start][end] = costs[k];
+            }
+            return validate(this.path, nodeCount, capacity, demand, cost);
+        }
+
+        private int integer(String value){
+            try{
+                return Integer.parseInt(value);
+            }catch (NumberFormatException e){
+                throw error("customer \"" + value + "\" is not an integer");
+            }
+        }
+
+        private long integer(double value){
+            if (value != Math.rint(value)){
+                throw error(value + " is not an integer");
+            }
+            return (long) value;
+        }
+
+        private IllegalArgumentException error(String message){
+            return malformed(this.path, message + " at offset " + (this.offset + this.position));
+        }
+
+        // refill the buffer once it is consumed, return false at the end of the file
+        private boolean fill() throws IOException{
+            if (this.position < this.length){
+                return true;
+            }
+            this.offset += this.length;
+            this.length = Math.max(this.reader.read(this.buffer), 0);
+            this.position = 0;
+            return this.length > 0;
+        }
+
+        // the next character after the whitespace, -1 at the end of the file
+        private int peek() throws IOException{
+            while (true){
+                if (!fill()){
+                    return -1;
+                }
+                char c = this.buffer[this.position];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t'){
+                    return c;
+                }
+                this.position++;
+            }
+        }
+
+        private void expect(char c) throws IOException{
+            int next = peek();
+            if (next != c){
+                throw error("expected '" + c + "' but found " + (next < 0 ? "the end of the file" : "'" + (char) next + "'"));
+            }
+            this.position++;
+        }
+
+        // consume the character if it is the next one
+        private boolean next(char c) throws IOException{
+            if (peek() == c){
+                this.position++;
+                return true;
+            }
+            return false;
+        }
+
+        // the next character of a value, whitespace included
+        private int raw() throws IOException{
+            if (!fill()){
+                return -1;
+            }
+            return this.buffer[this.position];
+        }
+
+        private String string() throws IOException{
+            expect('"');
+            this.token.setLength(0);
+            while (true){
+                int c = raw();
+                if (c < 0){
+                    throw error("unterminated string");
+                }
+                this.position++;
+                if (c == '"'){
+                    return this.token.toString();
+                }
+                if (c == '\\'){
+                    c = raw();
+                    if (c < 0){
+                        throw error("unterminated string");
+                    }
+                    this.position++;
+                    switch (c){
+                        case 'n': c = '\n'; break;
+                        case 't': c = '\t'; break;
+                        case 'r': c = '\r'; break;
+                        case 'b': c = '\b'; break;
+                        case 'f': c = '\f'; break;
+                        case 'u':
+                            int code = 0;
+                            for (int k=0;k<4;k++){
+                                int digit = raw() < 0 ? -1 : Character.digit(raw(), 16);
+                                if (digit < 0){
+                                    throw error("invalid unicode escape");
+                                }
+                                this.position++;
+                                code = 16 * code + digit;
+                            }
+                            c = code;
+                            break;
+                        default:
+                    }
+                }
+                this.token.append((char) c);
+            }
+        }
+
+        // a number, integers are accumulated directly, other numbers are parsed by Double.parseDouble
+        private double number() throws IOException{
+            int c = peek();
+            this.token.setLength(0);
+            boolean integral = true;
+            long value = 0;
+            while (c >= 0 && (c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')){
+                this.token.append((char) c);
+                if (c >= '0' && c <= '9' && value < Long.MAX_VALUE / 10 - 10){
+                    value = 10 * value + (c - '0');
+                }else if (c != '-' || this.token.length() > 1){
+                    integral = false;
+                }
+                this.position++;
+                c = raw();
+            }
+            if (this.token.length() == 0){
+                throw error("expected a number");
+            }
+            if (integral){
+                if (this.token.charAt(0) == '-'){
+                    if (this.token.length() == 1){
+                        throw error("expected a number");
+                    }
+                    return -value;
+                }
+                return value;
+            }
+            try{
+                return Double.parseDouble(this.token.toString());
+            }catch (NumberFormatException e){
+                throw error("invalid number " + this.token);
+            }
+        }
+
+        // skip a value of any type
+        private void skip() throws IOException{
+            int c = peek();
+            if (c == '"'){
+                string();
+            }else if (c == '{' || c == '['){
+                char close = c == '{' ? '}' : ']';
+                this.position++;
+                if (peek() != close){
+                    do {
+                        if (c == '{'){
+                            string();
+                            expect(':');
+                        }
+                        skip();
+                    } while (next(','));
+                }
+                expect(close);
+            }else if (c == 't' || c == 'f' || c == 'n'){
+                while (c >= 'a' && c <= 'z'){
+                    this.position++;
+                    c = raw();
+                }
+            }else{
+                number();
+            }
+        }
+    }
+
+    // read a CVRPLIB instance, the sections are read line by line
+    private static Instance readVrp(Path path, BufferedReader reader) throws IOException{
+        int dimension = -1;
+        double capacity = Double.NaN;
+        String weightType = "";
+        String weightFormat = "FULL_MATRIX";
+        String section = null;
+        double[] x = null;
+        double[] y = null;
+        double[] demand = null;
+        double[][] cost = null;
+        double[] weights = null;    // the values of the EDGE_WEIGHT_SECTION in the order of the file
+        int weightCount = 0;
+        int depot = 0;
+        boolean depotRead = false;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null){
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()){
+                continue;
+            }
+            if (Character.isLetter(line.charAt(0))){
+                int colon = line.indexOf(':');
+                if (colon >= 0){
+                    String key = line.substring(0, colon).trim().toUpperCase();
+                    String value = line.substring(colon + 1).trim();
+                    try{
+                        switch (key){
+                            case "DIMENSION": dimension = Integer.parseInt(value); break;
+                            case "CAPACITY": capacity = Double.parseDouble(value); break;
+                            case "EDGE_WEIGHT_TYPE": weightType = value.toUpperCase(); break;
+                            case "EDGE_WEIGHT_FORMAT": weightFormat = value.toUpperCase(); break;
+                            case "TYPE":
+                                if (!value.toUpperCase().startsWith("CVRP")){
+                                    throw malformed(path, "type " + value + " is not CVRP");
+                                }
+                                break;
+                            default:
+                        }
+                    }catch (NumberFormatException e){
+                        throw malformed(path, "invalid " + key + " \"" + value + "\" at line " + lineNumber);
+                    }
+                    section = null;
+                    continue;
+                }
+                section = line.split("\\s+")[0].toUpperCase();
+                if (section.equals("EOF")){
+                    break;
+                }
+                if (dimension < 2){
+                    throw malformed(path, section + " before a valid DIMENSION at line " + lineNumber);
+                }
+                switch (section){
+                    case "NODE_COORD_SECTION":
+                        x = new double[dimension];
+                        y = new double[dimension];
+                        break;
+                    case "DEMAND_SECTION":
+                        demand = new double[dimension];
+                        Arrays.fill(demand, Double.NaN);
+                        break;
+                    case "EDGE_WEIGHT_SECTION":
+                        weights = new double[weightCount(path, weightFormat, dimension)];
+                        break;
+                    default:
+                }
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            try{
+                if ("NODE_COORD_SECTION".equals(section) || "DEMAND_SECTION".equals(section)){
+                    int id = Integer.parseInt(tokens[0]) - 1;
+                    if (id < 0 || id >= dimension){
+                        throw malformed(path, "vertex " + tokens[0] + " out of range at line " + lineNumber);
+                    }
+                    if (section.equals("DEMAND_SECTION")){
+                        demand[id] = Double.parseDouble(tokens[1]);
+                    }else{
+                        x[id] = Double.parseDouble(tokens[1]);
+                        y[id] = Double.parseDouble(tokens[2]);
+                    }
+                }else if ("DEPOT_SECTION".equals(section)){
+                    int id = Integer.parseInt(tokens[0]);
+                    if (id == -1){
+                        continue;
+                    }
+                    if (depotRead){
+                        throw malformed(path, "more than one depot at line " + lineNumber);
+                    }
+                    if (id < 1 || id > dimension){
+                        throw malformed(path, "depot " + id + " out of range at line " + lineNumber);
+                    }
+                    depot = id - 1;
+                    depotRead = true;
+                }else if ("EDGE_WEIGHT_SECTION".equals(section)){
+                    for (String token: tokens){
+                        if (weightCount == weights.length){
+                            throw malformed(path, "too many edge weights at line " + lineNumber);
+                        }
+                        weights[weightCount++] = Double.parseDouble(token);
+                    }
+                }
+            }catch (NumberFormatException | ArrayIndexOutOfBoundsException e){
+                throw malformed(path, "invalid " + section + " entry \"" + line + "\" at line " + lineNumber);
+            }
+        }
+        if (dimension < 2){
+            throw malformed(path, "missing DIMENSION");
+        }
+        if (demand == null){
+            throw malformed(path, "missing DEMAND_SECTION");
+        }
+        if (weightType.equals("EXPLICIT")){
+            if (weights == null || weightCount != weights.length){
+                throw malformed(path, "expected " + weightCount(path, weightFormat, dimension) + " edge weights");
+            }
+            cost = explicitCost(weightFormat, dimension, weights);
+        }else{
+            if (x == null){
+                throw malformed(path, "missing NODE_COORD_SECTION");
+            }
+            cost = new double[dimension][dimension];
+            for (int i=0;i<dimension;i++){
+                for (int j=0;j<dimension;j++){
+                    cost[i][j] = distance(path, weightType, x[i] - x[j], y[i] - y[j]);
+                }
+            }
+        }
+//        the depot becomes vertex 0, the other vertices keep their order
+        if (depot != 0){
+            double[] row = cost[depot];
+            System.arraycopy(cost, 0, cost, 1, depot);
+            cost[0] = row;
+            for (double[] r: cost){
+                double value = r[depot];
+                System.arraycopy(r, 0, r, 1, depot);
+                r[0] = value;
+            }
+            double value = demand[depot];
+            System.arraycopy(demand, 0, demand, 1, depot);
+            demand[0] = value;
+        }
+        return validate(path, dimension, capacity, demand, cost);
+    }
+
+    private static int weightCount(Path path, String format, int dimension){
+        switch (format){
+            case "FULL_MATRIX": return dimension * dimension;
+            case "LOWER_ROW": case "UPPER_ROW": return dimension * (dimension - 1) / 2;
+            case "LOWER_DIAG_ROW": case "UPPER_DIAG_ROW": return dimension * (dimension + 1) / 2;
+            default: throw malformed(path, "unsupported EDGE_WEIGHT_FORMAT " + format);
+        }
+    }
+
+    // the symmetric cost matrix of the weights of an explicit instance, the rows of the format are read in order
+    private static double[][] explicitCost(String format, int dimension, double[] weights){
+        double[][] cost = new double[dimension][dimension];
+        int k = 0;
+        for (int i=0;i<dimension;i++){
+            int from;
+            int to;
+            switch (format){
+                case "FULL_MATRIX": from = 0; to = dimension - 1; break;
+                case "LOWER_ROW": from = 0; to = i - 1; break;
+                case "LOWER_DIAG_ROW": from = 0; to = i; break;
+                case "UPPER_ROW": from = i + 1; to = dimension - 1; break;
+                default: from = i; to = dimension - 1;
+            }
+            for (int j=from;j<=to;j++){
+                cost[i][j] = weights[k++];
+                if (!format.equals("FULL_MATRIX")){
+                    cost[j][i] = cost[i][j];
+                }
+            }
+        }
+        return cost;
+    }
+
+    // the TSPLIB distance of the coordinate differences
+    private static double distance(Path path, String type, double dx, double dy){
+        switch (type){
+            case "EUC_2D": return Math.floor(Math.sqrt(dx * dx + dy * dy) + 0.5);
+            case "CEIL_2D": return Math.ceil(Math.sqrt(dx * dx + dy * dy));
+            case "ATT":
+                double distance = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                double rounded = Math.floor(distance + 0.5);
+                return rounded < distance ? rounded + 1 : rounded;
+            default: throw malformed(path, "unsupported EDGE_WEIGHT_TYPE " + type);
+        }
+    }
+
+    private static Instance readBinary(Path path) throws IOException{
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if (size < HEADER){
+                throw malformed(path, "truncated header");
+            }
+            if (size > Integer.MAX_VALUE){
+                throw malformed(path, "larger than 2GB");
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.BIG_ENDIAN);
+            if (map.getInt() != MAGIC){
+                throw malformed(path, "not a binary instance");
+            }
+            int version = map.getInt();
+            if (version != VERSION){
+                throw malformed(path, "unsupported version " + version);
+            }
+            int nodeCount = map.getInt();
+            double capacity = map.getDouble();
+            if (nodeCount < 2 || size != HEADER + 8L * nodeCount * (nodeCount + 1L)){
+                throw malformed(path, "size " + size + " doesn't match " + nodeCount + " vertices");
+            }
+            DoubleBuffer values = map.asDoubleBuffer();
+            double[] demand = new double[nodeCount];
+            values.get(demand);
+            double[][] cost = new double[nodeCount][nodeCount];
+            for (double[] row: cost){
+                values.get(row);
+            }
+            return validate(path, nodeCount, capacity, demand, cost);
+        }
+    }
+
+    // write the instance in the binary format read by readBinary()
+    public void writeBinary(Path path){
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.nodeCount);
+            out.writeDouble(this.capacity);
+            ByteBuffer row = ByteBuffer.allocate(8 * this.nodeCount).order(ByteOrder.BIG_ENDIAN);
+            row.asDoubleBuffer().put(this.demand);
+            out.write(row.array());
+            for (double[] costs: this.cost){
+                row.clear();
+                row.asDoubleBuffer().put(costs);
+                out.write(row.array());
+            }
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write instance " + path, e);
+        }
+    }
+}
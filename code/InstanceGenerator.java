@@ -0,0 +1,97 @@
+package BnP_Framework;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+/*
+The class generates random instances with the distribution of the bundled ones, the demand of each customer is a random
+    integer in [30,100], the cost of each arc of the complete graph is a random integer in [5,80], drawn separately for
+    (i,j) and (j,i), and the capacity is 300
+    the instance only depends on the number of customers and the seed, so benchmarks and experiments can rebuild it
+    instead of shipping files, generate() returns it and main() writes it as .json, in the format of the bundled
+    instances, or as .bin, see class Instance
+*/
+public class InstanceGenerator {
+    static final int minDemand = 30;
+    static final int maxDemand = 100;
+    static final int minCost = 5;
+    static final int maxCost = 80;
+    static final double capacity = 300;
+
+    // write the instance of args[0] customers and seed args[1] to the file args[2]
+    public static void main(String[] args){
+        if (args.length != 3){
+            System.out.println("usage: InstanceGenerator <customers> <seed> <instance.json|instance.bin>");
+            return;
+        }
+        Instance instance = generate(Integer.parseInt(args[0]), Long.parseLong(args[1]));
+        Path path = Paths.get(args[2]);
+        if (path.getFileName().toString().toLowerCase().endsWith(".bin")){
+            instance.writeBinary(path);
+        }else{
+            writeJson(instance, path);
+        }
+    }
+
+    public static Instance generate(int customers, long seed){
+        if (customers < 1){
+            throw new IllegalArgumentException("an instance needs at least one customer");
+        }
+        Random random = new Random(seed);
+        int n = customers + 1;
+        double[] demand = new double[n];
+        for (int i=1;i<n;i++){
+            demand[i] = minDemand + random.nextInt(maxDemand - minDemand + 1);
+        }
+        double[][] cost = new double[n][n];
+        for (int i=0;i<n;i++){
+            for (int j=0;j<n;j++){
+                cost[i][j] = i == j ? Double.POSITIVE_INFINITY : minCost + random.nextInt(maxCost - minCost + 1);
+            }
+        }
+        return new Instance(n, capacity, demand, cost);
+    }
+
+    // write the instance in the .json format, the arcs are the pairs of a finite cost
+    public static void writeJson(Instance instance, Path path){
+        int n = instance.nodeCount;
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)){
+            out.write("{\"demand\": {");
+            for (int i=1;i<n;i++){
+                out.write((i > 1 ? ", \"" : "\"") + i + "\": " + number(instance.demand[i]));
+            }
+            out.write("}, \"arcs\": [");
+            boolean first = true;
+            for (int i=0;i<n;i++){
+                for (int j=0;j<n;j++){
+                    if (instance.cost[i][j] < Double.POSITIVE_INFINITY){
+                        out.write((first ? "[" : ", [") + i + ", " + j + "]");
+                        first = false;
+                    }
+                }
+            }
+            out.write("], \"cost\": [");
+            first = true;
+            for (int i=0;i<n;i++){
+                for (int j=0;j<n;j++){
+                    if (instance.cost[i][j] < Double.POSITIVE_INFINITY){
+                        out.write((first ? "" : ", ") + number(instance.cost[i][j]));
+                        first = false;
+                    }
+                }
+            }
+            out.write("], \"capacity\": " + number(instance.capacity) + "}");
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write instance " + path, e);
+        }
+    }
+
+    // integers are written without a fraction, like in the bundled instances
+    private static String number(double value){
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+}
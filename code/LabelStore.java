@@ -0,0 +1,239 @@
+package BnP_Framework;
+import java.util.Arrays;
+/*
+The class stores the labels of the labeling algorithm in primitive arrays instead of one object per label
+    label k is at vertex 'vertex[k]' with reduced cost 'cost[k]' and load 'load[k]', it is extended from label 'pred[k]'
+    (-1 for the initial label), so the path is recovered by following 'pred' instead of copying it into every label
+    the labels of each vertex are organised in capacity buckets of width 'bucketWidth', the labels that may dominate
+    a new label sit in the buckets with lower or equal load, and the labels it may dominate in the buckets with higher
+    or equal load, so a dominance check only scans the relevant buckets of one vertex
+    'treated' records for each bucket how many of its labels have already been extended
+    with ng-route or elementary pricing each label also has a memory of 'words' longs in 'memory', a bitset of the
+    customers it can't be extended to, and a label dominates another only if its memory is a subset of the other's,
+    so the check is a couple of word operations, without memory the 2-cycle elimination dominance is used
+    with 'relaxed' a label is dominated by any label with lower cost and load, the heuristic pricing uses it to keep
+    few labels, the routes are still feasible but some negative routes may be missed
+a worker of the parallel labeling keeps the labels it creates in a wave in a store of its own, whose 'origin' is the
+    shared store that holds their predecessors, and the labels that survive the wave are then moved to the shared store
+    at the positions reserved by reserve()
+*/
+public class LabelStore {
+    static final int DOMINATED = -2;    // the result of dominance() for a dominated label
+    LabelStore origin = this;   // the store of the predecessors of the labels
+    int size;   // the number of labels
+    int[] vertex = new int[1024];
+    double[] cost = new double[1024];
+    double[] load = new double[1024];
+    int[] pred = new int[1024];
+    boolean[] dominated = new boolean[1024];
+    int words;  // the number of longs of the memory of a label, 0 if labels have no memory
+    boolean relaxed;    // dominance ignores the memory and the predecessor of the labels
+    long[] memory;
+    int nodeCount;
+    int bucketCount;
+    double bucketWidth;
+    int[][] bucket;     // bucket[v*bucketCount+b] are the labels of vertex v in bucket b
+    int[] bucketSize;
+    int[] treated;
+
+    LabelStore(int nodeCount, double capacity, double bucketWidth, int words){
+        this.nodeCount = nodeCount;
+        this.words = words;
+        this.memory = new long[1024 * words];
+        this.bucketWidth = bucketWidth;
+        this.bucketCount = (int) (capacity / bucketWidth) + 1;
+        this.bucket = new int[nodeCount * this.bucketCount][];
+        this.bucketSize = new int[nodeCount * this.bucketCount];
+        this.treated = new int[nodeCount * this.bucketCount];
+    }
+
+    // remove all labels but keep the allocated arrays for the next call
+    public void clear(){
+        this.size = 0;
+        Arrays.fill(this.bucketSize, 0);
+        Arrays.fill(this.treated, 0);
+    }
+
+    public int bucketOf(double load){
+        return Math.min((int) (load / this.bucketWidth), this.bucketCount - 1);
+    }
+
+    // remove the labels of a store that holds few of them, only their buckets are emptied
+    public void reset(){
+        for (int k=0;k<this.size;k++){
+            int index = this.vertex[k] * this.bucketCount + bucketOf(this.load[k]);
+            this.bucketSize[index] = 0;
+            this.treated[index] = 0;
+        }
+        this.size = 0;
+    }
+
+    // reserve the positions of 'count' more labels, return the first of them, the labels are set by put()
+    public int reserve(int count){
+        if (this.size + count > this.vertex.length){
+            int length = Math.max(this.vertex.length * 2, this.size + count);
+            this.vertex = Arrays.copyOf(this.vertex, length);
+            this.cost = Arrays.copyOf(this.cost, length);
+            this.load = Arrays.copyOf(this.load, length);
+            this.pred = Arrays.copyOf(this.pred, length);
+            this.dominated = Arrays.copyOf(this.dominated, length);
+            this.memory = Arrays.copyOf(this.memory, length * this.words);
+        }
+        int first = this.size;
+        this.size += count;
+        return first;
+    }
+
+    // add a label, its memory is copied from 'memory' which is ignored if labels have no memory
+    public int add(int vertex, double cost, double load, int pred, long[] memory){
+        int k = reserve(1);
+        put(k, vertex, cost, load, pred, memory, 0);
+        return k;
+    }
+
+    // set the reserved label k, its memory starts at 'offset' of 'memory', only the bucket of 'vertex' is modified, so
+    // labels of different vertices can be set concurrently
+    public void put(int k, int vertex, double cost, double load, int pred, long[] memory, int offset){
+        if (this.words > 0){
+            System.arraycopy(memory, offset, this.memory, k * this.words, this.words);
+        }
+        this.vertex[k] = vertex;
+        this.cost[k] = cost;
+        this.load[k] = load;
+        this.pred[k] = pred;
+        this.dominated[k] = false;
+        int index = vertex * this.bucketCount + bucketOf(load);
+        if (this.bucket[index] == null){
+            this.bucket[index] = new int[16];
+        }else if (this.bucketSize[index] == this.bucket[index].length){
+            this.bucket[index] = Arrays.copyOf(this.bucket[index], this.bucketSize[index] * 2);
+        }
+        this.bucket[index][this.bucketSize[index]++] = k;
+    }
+
+    // the vertex visited before label k, -1 for the initial label
+    public int prev(int k){
+        return this.pred[k] < 0 ? -1 : this.origin.vertex[this.pred[k]];
+    }
+
+    // whether vertex v is in the memory of label k
+    public boolean visited(int k, int v){
+        return (this.memory[k * this.words + (v >>> 6)] & (1L << v)) != 0;
+    }
+
+    // whether the memory of label k is a subset of 'memory' (subset) or a superset of it (!subset)
+    private boolean subset(int k, long[] memory, boolean subset){
+        int offset = k * this.words;
+        for (int w=0;w<this.words;w++){
+            long bits = subset ? this.memory[offset + w] & ~memory[w] : memory[w] & ~this.memory[offset + w];
+            if (bits != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // return the next untreated and non-dominated label of vertex v in bucket b, -1 if there is none
+    public int next(int v, int b){
+        int index = v * this.bucketCount + b;
+        while (this.treated[index] < this.bucketSize[index]){
+            int k = this.bucket[index][this.treated[index]++];
+            if (!this.dominated[k]){
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    public boolean untreated(int b){
+        for (int v=0;v<this.nodeCount;v++){
+            int index = v * this.bucketCount + b;
+            if (this.treated[index] < this.bucketSize[index]){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+    2-cycle elimination dominance, a label with predecessor 'prev' is dominated if a label with lower cost and load
+        has the same predecessor (or comes from the depot), or if two such labels have different predecessors,
+        since together they can be extended to every vertex the new label can be extended to
+    if labels have memory, the new label is dominated by a label with lower cost and load whose memory is a subset
+     */
+    public boolean dominated(int v, double cost, double load, int prev, long[] memory){
+        return dominance(v, cost, load, prev, memory, -1) == DOMINATED;
+    }
+
+    // the check of dominated() continued from the predecessor 'firstPrev' of a dominating label found in another store,
+    // return DOMINATED, or the predecessor of the first dominating label for the check of the next store
+    public int dominance(int v, double cost, double load, int prev, long[] memory, int firstPrev){
+        int last = v * this.bucketCount + bucketOf(load);
+        for (int index = v * this.bucketCount; index <= last; index++){
+            int[] labels = this.bucket[index];
+            for (int i=0;i<this.bucketSize[index];i++){
+                int k = labels[i];
+                if (this.dominated[k] || this.cost[k] > cost || this.load[k] > load){
+                    continue;
+                }
+                if (this.relaxed){
+                    return DOMINATED;
+                }
+                if (this.words > 0){
+                    if (subset(k, memory, true)){
+                        return DOMINATED;
+                    }
+                    continue;
+                }
+                int kPrev = prev(k);
+                if (kPrev == prev || kPrev == 0){
+                    return DOMINATED;
+                }else if (firstPrev < 0){
+                    firstPrev = kPrev;
+                }else if (firstPrev != kPrev){
+                    return DOMINATED;
+                }
+            }
+        }
+        return firstPrev;
+    }
+
+    // mark the labels of vertex v dominated by a new label, the new label is not yet in the store, return their number
+    public int removeDominated(int v, double cost, double load, int prev, long[] memory){
+        int removed = 0;
+        int first = v * this.bucketCount + bucketOf(load);
+        int last = (v + 1) * this.bucketCount;
+        for (int index = first; index < last; index++){
+            int[] labels = this.bucket[index];
+            for (int i=0;i<this.bucketSize[index];i++){
+                int k = labels[i];
+                if (!this.dominated[k] && this.cost[k] >= cost && this.load[k] >= load &&
+                        (this.relaxed || (this.words > 0 ? subset(k, memory, false) : prev == 0 || prev(k) == prev))){
+                    this.dominated[k] = true;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    // the number of vertices on the path of label k
+    public int length(int k){
+        int length = 0;
+        for (;k >= 0;k = this.pred[k]){
+            length++;
+        }
+        return length;
+    }
+
+    // recover the path of label k, such as [0,1,2,3], with 'extra' free positions at its end
+    public int[] path(int k, int extra){
+        int length = length(k);
+        int[] path = new int[length + extra];
+        for (int i=length-1;i>=0;i--){
+            path[i] = this.vertex[k];
+            k = this.pred[k];
+        }
+        return path;
+    }
+}
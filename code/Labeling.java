@@ -0,0 +1,666 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+/*
+The class solves the sub problem of column generation with a 2-cycle elimination labeling algorithm
+    the labels are kept in a LabelStore and treated bucket by bucket in increasing order of load, since the width
+    of a bucket is the smallest demand, a label is always extended into a higher bucket, so all labels that may
+    dominate the labels of a bucket are known when the bucket is treated
+    pricing() adds the routes with negative reduced cost to the route list and returns the number of added routes
+the algorithm is monodirectional by default, the labels are extended forward from the depot until the capacity
+    is exhausted and a route is closed whenever a label returns to the depot
+if UserParam.bidirectional is set, forward labels are extended from the depot along the arcs and backward labels
+    from the depot against the arcs, both only while their load does not exceed half of the capacity, then each
+    forward label at i is joined with each backward label at j over the arc (i,j), labels whose completion bound
+    shows they can't lead to a negative route are discarded
+    the reduced cost of a forward label includes the dual of its vertex, the one of a backward label doesn't, since
+    the dual of j is paid by the arc (i,j) that joins the two labels
+if UserParam.ngSize is positive the 2-cycle elimination is replaced by the ng-route relaxation, the neighbourhood
+    of a customer is itself and its ngSize-1 nearest customers, a label remembers the visited customers that are in
+    the neighbourhood of every later vertex of its path and can't be extended to them, with UserParam.elementary
+    the neighbourhoods contain all customers, so only elementary routes are generated
+pricing(pi, maxRoute, routes, arcLimit) is the heuristic version, the labels are only extended along the arcLimit arcs
+    with the lowest reduced cost leaving each vertex and the arcs back to the depot, and the relaxed dominance of the
+    label store is used, so it is much faster, but it can't prove that no negative route exists
+reducedCostBound() is a lower bound of the reduced cost of every route after an exact pricing that was not stopped by
+    maxRoute, every route with a reduced cost below the threshold is found then, so the bound is the lowest of them
+the duals of the cuts of the master problem are subtracted from the reduced cost of the arcs entering their sets, so
+    the labeling algorithm itself doesn't depend on the cuts
+with UserParam.pricingThreads > 1 the labels are extended and joined by several workers, see extend() and join(), the
+    work of each worker is merged in a fixed order, so the routes found don't depend on the number of workers
+the labeling stops before the next bucket once the SolveControl of 'control' is stopped, the pricing is then incomplete
+    and arcBounds() returns null
+each pricing counts the labels it extends, creates and finds dominated, a created label that is dominated later counts
+    in both, the counts don't depend on the number of workers either
+*/
+public class Labeling {
+    static final int maxBuckets = 1024;    // upper limit of the number of capacity buckets of a vertex
+    static final double threshold = -0.1;   // a route is added if its reduced cost is lower than the threshold
+    UserParam user;     // the solve of the node, whose instance the routes belong to
+    int[][] successors;
+    int[][] predecessors;
+    int[][] outArcs;    // the arcs scanned by the current pricing, the successors or those of the reduced graph
+    int[][] inArcs;
+    LabelStore store;   // forward labels
+    LabelStore backwardStore;   // backward labels, only used by the bidirectional algorithm
+    long[][] neighbourhood;     // ng neighbourhood of each vertex as a bitset, null for 2-cycle elimination
+    long[] newMemory;   // memory of the label being created
+    double[][] reducedCost;     // reduced cost of each arc under the current duals
+    List<Cut> cuts = new ArrayList<Cut>();  // the cuts of the master problem, the dual of the k-th is pi[nodeCount+k]
+    double[] minIn;     // the lowest reduced cost of the arcs entering each vertex
+    double maxRatio;    // the highest ratio between the negative part of minIn and the demand of a customer
+    int addedRoute;
+    double minReducedCost;  // the lowest reduced cost of the added routes
+    boolean complete;   // if the last pricing was exact and not stopped by maxRoute
+    Wave[] waves;   // the workers extending the labels of a bucket
+    boolean stopped;    // the worker of the depot has added more than maxRoute routes
+    SolveControl control;   // the control of the solve, null never stops the labeling
+    boolean interrupted;    // the last pricing was stopped by the control
+    long labelsExtended;    // the labels extended by the last pricing
+    long labelsCreated;
+    long labelsDominated;   // the new labels rejected by dominance and the labels of the store it removed
+
+    Labeling(UserParam user, int[][] successors){
+        this.user = user;
+        int n = user.nodeCount;
+        this.successors = successors;
+        this.predecessors = predecessors(successors);
+        double width = user.capacity;
+        for (int i=1;i<n;i++){
+            if (user.demand[i] > 0){
+                width = Math.min(width, user.demand[i]);
+            }
+        }
+        width = Math.max(width, user.capacity / maxBuckets);
+        int words = 0;
+        if (UserParam.elementary || UserParam.ngSize > 0){
+            words = (n + 63) / 64;
+            this.neighbourhood = neighbourhood(UserParam.elementary ? n : UserParam.ngSize, words);
+        }
+        this.newMemory = new long[words];
+        this.store = new LabelStore(n, user.capacity, width, words);
+        this.reducedCost = new double[n][n];
+        this.minIn = new double[n];
+    }
+
+    public int pricing(double[] pi, int maxRoute, List<Route> routes){
+        return pricing(pi, maxRoute, routes, 0);
+    }
+
+    // price on the reduced graph of the arcLimit cheapest arcs leaving each vertex, or exactly if arcLimit is 0
+    public int pricing(double[] pi, int maxRoute, List<Route> routes, int arcLimit){
+        this.addedRoute = 0;
+        this.minReducedCost = Double.POSITIVE_INFINITY;
+        clearCounts();
+        this.interrupted = false;
+        reducedCost(pi);
+        boolean heuristic = arcLimit > 0;
+        this.complete = !heuristic;
+        this.outArcs = heuristic ? reducedGraph(arcLimit) : this.successors;
+        this.inArcs = heuristic ? predecessors(this.outArcs) : this.predecessors;
+        this.store.relaxed = heuristic;
+        if (!UserParam.bidirectional){
+            if (extend(this.store, false, this.user.capacity, false, threshold, maxRoute, routes)){
+                this.complete = false;
+            }
+            return this.addedRoute;
+        }
+        backwardStore().relaxed = heuristic;
+        double half = this.user.capacity / 2;
+        extend(this.store, false, half, true, threshold, maxRoute, routes);
+        extend(this.backwardStore, true, half, true, threshold, maxRoute, routes);
+        join(maxRoute, routes);
+        if (this.interrupted){
+            this.complete = false;
+        }
+        return this.addedRoute;
+    }
+
+    private LabelStore backwardStore(){
+        if (this.backwardStore == null){
+            this.backwardStore = new LabelStore(this.user.nodeCount, this.user.capacity, this.store.bucketWidth,
+                    this.store.words);
+        }
+        return this.backwardStore;
+    }
+
+    /*
+    lower bound of the reduced cost of the routes that use each arc under the duals pi, +infinity if it isn't an arc
+        forward and backward labels are extended up to the capacity, a route using the arc (i,j) is made of a forward
+        label at i, the arc and a backward label at j whose loads fit in the capacity, so the bound of the arc is its
+        reduced cost plus, over the buckets of the forward labels at i, the cheapest forward label of the bucket and
+        the cheapest backward label at j that fits with the lightest load of the bucket
+        the memories and predecessors of the labels are ignored, which only lowers the bound
+    labels whose completion bound reaches 'limit' are discarded, the arcs only used by them are bounded by the limit
+     */
+    public double[][] arcBounds(double[] pi, double limit){
+        int n = this.user.nodeCount;
+        clearCounts();
+        this.interrupted = false;
+        reducedCost(pi);
+        this.outArcs = this.successors;
+        this.inArcs = this.predecessors;
+        this.store.relaxed = false;
+        backwardStore().relaxed = false;
+        extend(this.store, false, this.user.capacity, true, limit, Integer.MAX_VALUE, null);
+        extend(this.backwardStore, true, this.user.capacity, true, limit, Integer.MAX_VALUE, null);
+        if (this.interrupted){
+            return null;
+        }
+        double[][] forward = envelope(this.store, false);
+        double[][] backward = envelope(this.backwardStore, true);
+        double[][] bound = new double[n][n];
+        for (int i=0;i<n;i++){
+            Arrays.fill(bound[i], Double.POSITIVE_INFINITY);
+            for (int j: this.successors[i]){
+                if (i == 0 && j == 0){
+                    continue;
+                }
+                double best = Double.POSITIVE_INFINITY;
+                for (int b=0;b<this.store.bucketCount;b++){
+                    if (forward[i][b] == Double.POSITIVE_INFINITY){
+                        continue;
+                    }
+                    int fit = this.backwardStore.bucketOf(this.user.capacity - b * this.store.bucketWidth);
+                    best = Math.min(best, forward[i][b] + backward[j][fit]);
+                }
+                bound[i][j] = this.reducedCost[i][j] + best;
+            }
+        }
+        return bound;
+    }
+
+    // the lowest cost of the labels of each vertex in each bucket, or in each bucket and the lighter ones (prefix)
+    private static double[][] envelope(LabelStore store, boolean prefix){
+        double[][] envelope = new double[store.nodeCount][store.bucketCount];
+        for (double[] row: envelope){
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+        for (int k=0;k<store.size;k++){
+            if (!store.dominated[k]){
+                int b = store.bucketOf(store.load[k]);
+                envelope[store.vertex[k]][b] = Math.min(envelope[store.vertex[k]][b], store.cost[k]);
+            }
+        }
+        if (prefix){
+            for (double[] row: envelope){
+                for (int b=1;b<row.length;b++){
+                    row[b] = Math.min(row[b], row[b-1]);
+                }
+            }
+        }
+        return envelope;
+    }
+
+    private void clearCounts(){
+        this.labelsExtended = 0;
+        this.labelsCreated = 0;
+        this.labelsDominated = 0;
+    }
+
+    public double reducedCostBound(){
+        return this.complete ? Math.min(this.minReducedCost, threshold) : Double.NEGATIVE_INFINITY;
+    }
+
+    static int[][] predecessors(int[][] successors){
+        int n = successors.length;
+        int[] degree = new int[n];
+        for (int[] heads: successors){
+            for (int j: heads){
+                degree[j]++;
+            }
+        }
+        int[][] predecessors = new int[n][];
+        for (int j=0;j<n;j++){
+            predecessors[j] = new int[degree[j]];
+            degree[j] = 0;
+        }
+        for (int i=0;i<n;i++){
+            for (int j: successors[i]){
+                predecessors[j][degree[j]++] = i;
+            }
+        }
+        return predecessors;
+    }
+
+    // keep the arcLimit arcs with the lowest reduced cost leaving each vertex, and the arc back to the depot
+    private int[][] reducedGraph(int arcLimit){
+        int n = this.user.nodeCount;
+        int[][] reduced = new int[n][];
+        for (int i=0;i<n;i++){
+            int from = i;
+            Integer[] heads = new Integer[this.successors[i].length];
+            int customers = 0;
+            boolean depot = false;
+            for (int j: this.successors[i]){
+                if (j == 0){
+                    depot = true;
+                }else{
+                    heads[customers++] = j;
+                }
+            }
+            Arrays.sort(heads, 0, customers, Comparator.comparingDouble(j -> this.reducedCost[from][j]));
+            int kept = Math.min(arcLimit, customers);
+            reduced[i] = new int[kept + (depot ? 1 : 0)];
+            for (int k=0;k<kept;k++){
+                reduced[i][k] = heads[k];
+            }
+            if (depot){
+                reduced[i][kept] = 0;
+            }
+        }
+        return reduced;
+    }
+
+    // the neighbourhood of each customer contains itself and its size-1 nearest customers
+    private long[][] neighbourhood(int size, int words){
+        int n = this.user.nodeCount;
+        long[][] neighbourhood = new long[n][words];
+        for (int i=1;i<n;i++){
+            int from = i;
+            List<Integer> customers = new ArrayList<Integer>();
+            for (int j=1;j<n;j++){
+                if (j != i){
+                    customers.add(j);
+                }
+            }
+            customers.sort(Comparator.comparingDouble(j -> this.user.cost[from][j]));
+            neighbourhood[i][i >>> 6] |= 1L << i;
+            for (int j: customers.subList(0, Math.min(size - 1, customers.size()))){
+                neighbourhood[i][j >>> 6] |= 1L << j;
+            }
+        }
+        return neighbourhood;
+    }
+
+    // compute the reduced cost of every arc and the data of the completion bound
+    void reducedCost(double[] pi){
+        int n = this.user.nodeCount;
+        double[][] cost = this.user.cost;
+        Arrays.fill(this.minIn, Double.POSITIVE_INFINITY);
+        for (int i=0;i<n;i++){
+            for (int j: this.successors[i]){
+                this.reducedCost[i][j] = cost[i][j] - pi[j];
+            }
+        }
+        for (int k=0;k<this.cuts.size();k++){
+            double dual = pi[n + k];
+            if (dual == 0.0){
+                continue;
+            }
+            Cut cut = this.cuts.get(k);
+            for (int i=0;i<n;i++){
+                if (cut.inSet[i]){
+                    continue;
+                }
+                for (int j: this.successors[i]){
+                    if (cut.inSet[j]){
+                        this.reducedCost[i][j] -= dual;
+                    }
+                }
+            }
+        }
+        for (int i=0;i<n;i++){
+            for (int j: this.successors[i]){
+                this.minIn[j] = Math.min(this.minIn[j], this.reducedCost[i][j]);
+            }
+        }
+        this.maxRatio = 0.0;
+        for (int j=1;j<n;j++){
+            if (this.minIn[j] < 0){
+                if (this.user.demand[j] <= 0){
+                    this.maxRatio = Double.POSITIVE_INFINITY;
+                }else{
+                    this.maxRatio = Math.max(this.maxRatio, -this.minIn[j] / this.user.demand[j]);
+                }
+            }
+        }
+    }
+
+    /*
+    lower bound of the reduced cost of any route that contains the label, the arcs completing it enter customers
+        and finally the depot (forward) or the vertex of the label (backward), an arc entering customer k costs at
+        least minIn[k], and the customers served by the completion can't exceed the residual capacity, so the
+        completion costs at least minIn[end] - residual*maxRatio even if a customer is visited more than once
+     */
+    private double completionBound(int vertex, double cost, double load, boolean backward){
+        double residual = this.user.capacity - load;
+        return cost + this.minIn[backward ? vertex : 0] - (residual > 0 ? residual * this.maxRatio : 0.0);
+    }
+
+    /*
+    treat the labels of the store bucket by bucket, a label is extended only if its load does not exceed 'limit'
+        forward labels follow the successors and close a route when they return to the depot unless 'bidirectional'
+        is set, backward labels follow the predecessors and never return to the depot
+        with 'bidirectional' the labels whose completion bound reaches 'prune' are discarded
+    the untreated labels of a bucket are extended in one wave, the vertices are shared out among the workers and each
+        worker creates the labels of its own vertices, so it checks their dominance against the labels of the store,
+        which are only read during the wave, and against the labels it created in the wave, then the labels that are
+        still not dominated are moved to the store, each worker to the buckets of its vertices, the routes are closed
+        by the worker of the depot in the order of the labels
+    return true if more than maxRoute routes have been added, or if the labeling was interrupted
+     */
+    private boolean extend(LabelStore store, boolean backward, double limit, boolean bidirectional, double prune,
+                           int maxRoute, List<Route> routes){
+        int n = this.user.nodeCount;
+        int[][] adjacency = backward ? this.inArcs : this.outArcs;
+        Wave[] waves = waves();
+//        the heads of the arcs leaving each vertex that belong to each worker, vertex v belongs to worker v%workers
+        int[][][] heads = new int[waves.length][][];
+        if (waves.length == 1){
+            heads[0] = adjacency;
+        }else{
+            for (int t=0;t<waves.length;t++){
+                heads[t] = new int[n][];
+                for (int v=0;v<n;v++){
+                    int owned = 0;
+                    for (int next: adjacency[v]){
+                        if (next % waves.length == t){
+                            owned++;
+                        }
+                    }
+                    heads[t][v] = new int[owned];
+                    owned = 0;
+                    for (int next: adjacency[v]){
+                        if (next % waves.length == t){
+                            heads[t][v][owned++] = next;
+                        }
+                    }
+                }
+            }
+        }
+        this.stopped = false;
+        store.clear();
+        Arrays.fill(this.newMemory, 0L);
+        store.add(0, 0.0, 0.0, -1, this.newMemory);
+        int[] labels = new int[64];
+        for (int b=0;b<store.bucketCount;b++){
+            if (this.control != null && this.control.stopped()){
+                this.interrupted = true;
+                return true;
+            }
+//            labels of zero demand customers stay in the same bucket, so treat the bucket until nothing is left
+            while (store.untreated(b)){
+                int size = 0;
+                for (int v=0;v<n;v++){
+                    int k;
+                    while ((k = store.next(v, b)) >= 0){
+                        if (store.load[k] > limit){
+                            continue;
+                        }
+                        if (size == labels.length){
+                            labels = Arrays.copyOf(labels, 2 * size);
+                        }
+                        labels[size++] = k;
+                    }
+                }
+                if (size == 0){
+                    continue;
+                }
+                int[] wave = labels;
+                int count = size;
+                this.labelsExtended += count;
+                this.user.pricing.run(waves.length, t -> waves[t].extend(store, wave, count, heads[t], backward,
+                        bidirectional, prune, maxRoute, routes));
+//                termination condition
+                if (this.stopped){
+                    count(waves);
+                    return true;
+                }
+                int[] first = new int[waves.length];
+                int created = 0;
+                for (int t=0;t<waves.length;t++){
+                    first[t] = created;
+                    created += waves[t].survivors();
+                }
+                int base = store.reserve(created);
+                this.user.pricing.run(waves.length, t -> waves[t].insert(store, base + first[t]));
+                count(waves);
+            }
+        }
+        return false;
+    }
+
+    // add the counts of the workers to those of the pricing
+    private void count(Wave[] waves){
+        for (Wave wave: waves){
+            this.labelsCreated += wave.createdLabels;
+            this.labelsDominated += wave.dominatedLabels;
+            wave.createdLabels = 0;
+            wave.dominatedLabels = 0;
+        }
+    }
+
+    // one worker for each pricing thread, they are kept for the next pricing
+    private Wave[] waves(){
+        if (this.waves == null || this.waves.length != this.user.pricing.threads()){
+            this.waves = new Wave[this.user.pricing.threads()];
+            for (int t=0;t<this.waves.length;t++){
+                this.waves[t] = new Wave();
+            }
+        }
+        return this.waves;
+    }
+
+    // a worker of extend(), 'created' holds the labels it creates in a wave until they are moved to the store
+    private class Wave {
+        final LabelStore created = new LabelStore(user.nodeCount, user.capacity, store.bucketWidth,
+                store.words);
+        final long[] newMemory = new long[store.words];
+        long createdLabels;     // the labels created and found dominated since the last count()
+        long dominatedLabels;
+
+        // extend the labels of the wave along the arcs whose head belongs to the worker
+        void extend(LabelStore store, int[] wave, int size, int[][] heads, boolean backward, boolean bidirectional,
+                    double prune, int maxRoute, List<Route> routes){
+            double[][] reducedCost = Labeling.this.reducedCost;
+            double[] demand = user.demand;
+            double capacity = user.capacity;
+            long[][] neighbourhood = Labeling.this.neighbourhood;
+            long[] newMemory = this.newMemory;
+            int words = store.words;
+            LabelStore created = this.created;
+            created.reset();
+            created.origin = store;
+            created.relaxed = store.relaxed;
+            for (int l=0;l<size;l++){
+                int k = wave[l];
+                int v = store.vertex[k];
+                int prev = store.prev(k);
+                for (int next: heads[v]){
+//                    the label can't get back to the pre node (or a customer in its memory),
+//                    but it can always return to the depot
+                    if (next != 0 && (words > 0 ? store.visited(k, next) : next == prev)){
+                        continue;
+                    }
+                    if (next == 0){
+                        if (!bidirectional && v != 0 && store.cost[k] + reducedCost[v][0] < threshold){
+                            addedRoute++;
+                            minReducedCost = Math.min(minReducedCost, store.cost[k] + reducedCost[v][0]);
+                            routes.add(new Route(store.path(k, 0), user));
+                            if (addedRoute > maxRoute){
+                                stopped = true;
+                                return;
+                            }
+                        }
+                        continue;
+                    }
+                    double newLoad = store.load[k] + demand[next];
+//                    check capacity constraint
+                    if (newLoad > capacity){
+                        continue;
+                    }
+                    double newCost = store.cost[k] + (backward ? reducedCost[next][v] : reducedCost[v][next]);
+                    if (bidirectional && completionBound(next, newCost, newLoad, backward) >= prune){
+                        continue;
+                    }
+                    if (words > 0){
+                        int offset = k * words;
+                        for (int w=0;w<words;w++){
+                            newMemory[w] = store.memory[offset + w] & neighbourhood[next][w];
+                        }
+                        newMemory[next >>> 6] |= 1L << next;
+                    }
+//                    dominance check, only the buckets of the new vertex are scanned, in the store and in the wave
+                    int firstPrev = store.dominance(next, newCost, newLoad, v, newMemory, -1);
+                    if (firstPrev == LabelStore.DOMINATED ||
+                            created.dominance(next, newCost, newLoad, v, newMemory, firstPrev) == LabelStore.DOMINATED){
+                        this.dominatedLabels++;
+                        continue;
+                    }
+                    this.dominatedLabels += created.removeDominated(next, newCost, newLoad, v, newMemory);
+                    created.add(next, newCost, newLoad, k, newMemory);
+                    this.createdLabels++;
+                }
+            }
+        }
+
+        int survivors(){
+            int survivors = 0;
+            for (int k=0;k<this.created.size;k++){
+                if (!this.created.dominated[k]){
+                    survivors++;
+                }
+            }
+            return survivors;
+        }
+
+        // move the labels of the wave that are not dominated to the store, from position 'first'
+        void insert(LabelStore store, int first){
+            LabelStore created = this.created;
+            for (int k=0;k<created.size;k++){
+                if (created.dominated[k]){
+                    continue;
+                }
+                int v = created.vertex[k];
+                int offset = k * created.words;
+                for (int w=0;w<created.words;w++){
+                    this.newMemory[w] = created.memory[offset + w];
+                }
+                this.dominatedLabels += store.removeDominated(v, created.cost[k], created.load[k], created.prev(k),
+                        this.newMemory);
+                store.put(first++, v, created.cost[k], created.load[k], created.pred[k], created.memory, offset);
+            }
+        }
+    }
+
+    // join the forward labels at i and the backward labels at j over each arc (i,j), a route that can be split at
+    // several arcs is only added once, the forward labels are taken vertex by vertex and bucket by bucket, which is
+    // the same order for any number of workers, they are split in chunks joined by the workers, and the routes of the
+    // chunks are added in that order
+    private void join(int maxRoute, List<Route> routes){
+        LabelStore forward = this.store;
+        int[] labels = new int[forward.size];
+        int size = 0;
+        for (int index=0;index<forward.bucket.length;index++){
+            for (int l=0;l<forward.bucketSize[index];l++){
+                labels[size++] = forward.bucket[index][l];
+            }
+        }
+        int count = size;
+        int chunks = this.user.pricing.threads() == 1 ? 1 : 4 * this.user.pricing.threads();
+        List<List<Route>> joinedRoutes = new ArrayList<List<Route>>();
+        List<List<Double>> joinedCosts = new ArrayList<List<Double>>();
+        for (int c=0;c<chunks;c++){
+            joinedRoutes.add(new ArrayList<Route>());
+            joinedCosts.add(new ArrayList<Double>());
+        }
+        this.user.pricing.run(chunks, c -> join(labels, (int) ((long) count * c / chunks),
+                (int) ((long) count * (c + 1) / chunks), maxRoute, joinedRoutes.get(c), joinedCosts.get(c)));
+        Set<Route> found = new HashSet<Route>();
+        for (int c=0;c<chunks;c++){
+            for (int r=0;r<joinedRoutes.get(c).size();r++){
+                Route route = joinedRoutes.get(c).get(r);
+                if (!found.add(route)){
+                    continue;
+                }
+                this.addedRoute++;
+                this.minReducedCost = Math.min(this.minReducedCost, joinedCosts.get(c).get(r));
+                routes.add(route);
+//                termination condition
+                if (this.addedRoute > maxRoute){
+                    this.complete = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    // join the forward labels from 'from' to 'to', at most maxRoute+1 distinct routes are kept with their reduced cost
+    private void join(int[] order, int from, int to, int maxRoute, List<Route> routes, List<Double> costs){
+        LabelStore forward = this.store;
+        LabelStore backward = this.backwardStore;
+        double capacity = this.user.capacity;
+        Set<Route> found = new HashSet<Route>();
+        for (int l=from;l<to;l++){
+            int f = order[l];
+            if (forward.dominated[f]){
+                continue;
+            }
+            int i = forward.vertex[f];
+            int prevF = forward.prev(f);
+            for (int j: this.outArcs[i]){
+                if (i == 0 && j == 0){
+                    continue;
+                }
+                int first = j * backward.bucketCount;
+                int last = first + backward.bucketOf(capacity - forward.load[f]);
+                for (int index=first;index<=last;index++){
+                    int[] labels = backward.bucket[index];
+                    for (int t=0;t<backward.bucketSize[index];t++){
+                        int b = labels[t];
+                        if (backward.dominated[b] || forward.load[f] + backward.load[b] > capacity){
+                            continue;
+                        }
+                        double joined = forward.cost[f] + this.reducedCost[i][j] + backward.cost[b];
+                        if (joined >= threshold){
+                            continue;
+                        }
+//                        the joined route can't contain a 2-cycle around the arc (i,j),
+//                        or the memories of the two labels must be disjoint
+                        if (forward.words > 0){
+                            if (!disjoint(f, b)){
+                                continue;
+                            }
+                        }else{
+                            int nextB = backward.prev(b);
+                            if ((j != 0 && j == prevF) || (i != 0 && i == nextB)){
+                                continue;
+                            }
+                        }
+//                        the backward label is followed from j to the depot, which is not part of the path
+                        int length = forward.length(f);
+                        int[] path = forward.path(f, backward.length(b) - 1);
+                        for (int k=b;backward.vertex[k]!=0;k=backward.pred[k]){
+                            path[length++] = backward.vertex[k];
+                        }
+                        Route route = new Route(path, this.user);
+                        if (!found.add(route)){
+                            continue;
+                        }
+                        routes.add(route);
+                        costs.add(joined);
+                        if (routes.size() > maxRoute){
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // whether the memories of forward label f and backward label b are disjoint
+    private boolean disjoint(int f, int b){
+        int words = this.store.words;
+        for (int w=0;w<words;w++){
+            if ((this.store.memory[f * words + w] & this.backwardStore.memory[b * words + w]) != 0){
+                return false;
+            }
+        }
+        return true;
+    }
+}
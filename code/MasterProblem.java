@@ -0,0 +1,64 @@
+package BnP_Framework;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+/*
+The interface is the master problem of column generation, the set-partitioning LP over the routes of a node
+    each worker of the branching tree search owns one instance and keeps it across the nodes it optimizes, it is
+    created by create(user) for the instance of the solve of the worker
+    load() makes the routes of a node the available columns, add() appends the routes generated by pricing, and
+    solve() reoptimizes from the last basis, so neither call rebuilds the LP
+    every row has an artificial column with a big cost, so the LP is always feasible, infeasibility() is the total
+    value of the artificial columns after solve()
+    addCuts() appends the rows of rounded capacity cuts, the master problem keeps them for all later nodes, so a worker
+    only adds the cuts of the pool it doesn't have yet, cutCount() is the number of cuts it already has
+the backend is chosen by UserParam.lpSolver, GUROBI uses the Gurobi library and needs a licence, SIMPLEX is the
+    bundled Java simplex of SimplexMaster, which runs anywhere, the Gurobi backend is loaded by name so the other
+    classes don't depend on the Gurobi library
+    GUROBI falls back to SIMPLEX when the Gurobi backend is not in the build or the Gurobi library is not on the
+    class path, which is the case of the default build without the profile "gurobi", a Gurobi backend that is present
+    but can't start, e.g. without a licence, is still an error
+*/
+public interface MasterProblem {
+    enum Backend {GUROBI, SIMPLEX}
+    enum Status {OPTIMAL, INFEASIBLE, UNBOUNDED, ITERATION_LIMIT}
+
+    // make the routes of a node the available columns, unknown routes are added to the LP
+    void load(List<Route> routes);
+
+    // add the routes generated by pricing, they are available in the current node
+    void add(List<Route> routes);
+
+    // append the rows of the cuts, the coefficients of the existing columns are computed from their routes
+    void addCuts(List<Cut> cuts);
+
+    int cutCount();
+
+    Status solve();
+
+    double objVal();
+
+    // the dual value of each customer, pi[0] of the depot is 0, followed by the dual value of each cut, the dual of
+    // the k-th cut is pi[nodeCount+k]
+    double[] duals();
+
+    double value(Route route);
+
+    // the total value of the artificial columns, positive if the routes can't cover all customers
+    double infeasibility();
+
+    void dispose();
+
+    static MasterProblem create(UserParam user){
+        if (UserParam.lpSolver == Backend.SIMPLEX){
+            return new SimplexMaster(user);
+        }
+        try{
+            return (MasterProblem) Class.forName("BnP_Framework.GurobiMaster").getDeclaredConstructor(UserParam.class).
+                    newInstance(user);
+        }catch (InvocationTargetException e){
+            throw new IllegalStateException("the Gurobi master problem can't be created", e.getCause());
+        }catch (ReflectiveOperationException | LinkageError e){
+            return new SimplexMaster(user);
+        }
+    }
+}
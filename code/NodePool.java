@@ -0,0 +1,153 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+/*
+The class is the pool of unexplored nodes shared by the workers of the branching tree search
+    take() blocks until a node is available and marks the worker as busy, it returns null when the pool is empty and
+    no worker is busy, since only a busy worker can add new nodes, the worker calls done(node) after adding the
+    children of its node, so the search ends exactly when the whole tree has been explored
+    the taken nodes stay in flight until finished(node) or done(node) is called, once their children are in the pool,
+    or until restore(node) puts them back, bestBound() is the lowest lower bound of the pooled and the in-flight nodes,
+    so it is a valid bound of the tree while workers are optimizing nodes
+the nodes are kept in a heap ordered by the node selection strategy of UserParam.nodeSelection
+    BREADTH_FIRST takes the nodes in insertion order, BEST_BOUND the node with the lowest lower bound, DEPTH_FIRST
+    the deepest node, BEST_ESTIMATE the node with the lowest estimated integer objective, and HYBRID dives depth
+    first until an incumbent is found, then continues with the best bound
+    prune() drops the nodes whose lower bound reaches a new upper bound, so they don't hold memory until taken
+the added nodes are reported to the checkpoint of 'journal' if it is set, restore() adds a node of a checkpoint with
+    the sequence it had, and the nodes added later continue after the highest one
+*/
+public class NodePool {
+    enum Selection {BREADTH_FIRST, BEST_BOUND, DEPTH_FIRST, BEST_ESTIMATE, HYBRID}
+
+    private PriorityQueue<BnbNode> nodes;
+    private final Selection selection;
+    private boolean incumbentFound = false;
+    private long sequence;  // insertion counter, breaks ties between nodes in insertion order
+    private int busy;   // number of workers processing a node
+    private final List<BnbNode> inFlight = new ArrayList<BnbNode>();    // the taken nodes whose children aren't added
+    Checkpoint journal;
+
+    NodePool(Selection selection){
+        this.selection = selection;
+        this.nodes = new PriorityQueue<BnbNode>(comparator());
+    }
+
+    private Comparator<BnbNode> comparator(){
+        Comparator<BnbNode> insertion = Comparator.comparingLong(node -> node.sequence);
+        Comparator<BnbNode> bestBound = Comparator.<BnbNode>comparingDouble(node -> node.lowerBound).
+                thenComparing(insertion);
+        Comparator<BnbNode> depthFirst = Comparator.<BnbNode>comparingInt(node -> -node.depth).
+                thenComparing(insertion);
+        switch (this.selection){
+            case BEST_BOUND:
+                return bestBound;
+            case DEPTH_FIRST:
+                return depthFirst;
+            case BEST_ESTIMATE:
+                return Comparator.<BnbNode>comparingDouble(node -> node.estimate).thenComparing(insertion);
+            case HYBRID:
+                return this.incumbentFound ? bestBound : depthFirst;
+            default:
+                return insertion;
+        }
+    }
+
+    public synchronized void add(BnbNode node){
+        node.sequence = this.sequence++;
+        this.nodes.add(node);
+        if (this.journal != null){
+            this.journal.opened(node);
+        }
+        notifyAll();
+    }
+
+    public synchronized void restore(BnbNode node){
+        remove(node);
+        this.sequence = Math.max(this.sequence, node.sequence + 1);
+        this.nodes.add(node);
+        notifyAll();
+    }
+
+    public synchronized List<BnbNode> nodes(){
+        return new ArrayList<BnbNode>(this.nodes);
+    }
+
+    public synchronized BnbNode take() throws InterruptedException{
+        while (this.nodes.isEmpty()){
+            if (this.busy == 0){
+                return null;
+            }
+            wait();
+        }
+        this.busy++;
+        BnbNode node = this.nodes.poll();
+        this.inFlight.add(node);
+        return node;
+    }
+
+    // take at most n nodes without blocking, used by the rounds of the deterministic search
+    public synchronized List<BnbNode> take(int n){
+        List<BnbNode> round = new ArrayList<BnbNode>();
+        while (round.size() < n && !this.nodes.isEmpty()){
+            round.add(this.nodes.poll());
+        }
+        this.inFlight.addAll(round);
+        return round;
+    }
+
+    // the worker is done with the node it took
+    public synchronized void done(BnbNode node){
+        remove(node);
+        this.busy--;
+        if (this.busy == 0){
+            notifyAll();
+        }
+    }
+
+    // the node is branched, bounded or dropped, its bound no longer counts
+    public synchronized void finished(BnbNode node){
+        remove(node);
+    }
+
+    private void remove(BnbNode node){
+        for (int k=0;k<this.inFlight.size();k++){
+            if (this.inFlight.get(k) == node){
+                this.inFlight.remove(k);
+                return;
+            }
+        }
+    }
+
+    // remove the nodes that can't improve the new upper bound, the hybrid selection switches to best bound
+    public synchronized void prune(double upperBound){
+        this.nodes.removeIf(node -> node.lowerBound >= upperBound - UserParam.tolerance);
+        if (!this.incumbentFound){
+            this.incumbentFound = true;
+            if (this.selection == Selection.HYBRID){
+                PriorityQueue<BnbNode> heap = new PriorityQueue<BnbNode>(Math.max(1, this.nodes.size()), comparator());
+                heap.addAll(this.nodes);
+                this.nodes = heap;
+            }
+        }
+        notifyAll();
+    }
+
+    public synchronized int size(){
+        return this.nodes.size();
+    }
+
+    // the lowest lower bound of the nodes in the pool and in flight, +infinity if there is none
+    public synchronized double bestBound(){
+        double bound = Double.POSITIVE_INFINITY;
+        for (BnbNode node: this.nodes){
+            bound = Math.min(bound, node.lowerBound);
+        }
+        for (BnbNode node: this.inFlight){
+            bound = Math.min(bound, node.lowerBound);
+        }
+        return bound;
+    }
+}
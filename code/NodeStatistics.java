@@ -0,0 +1,43 @@
+package BnP_Framework;
+/*
+The class collects what the optimization of one node costs, it is reported by class Telemetry once the node is branched
+    the time of the node runs from the start of its column generation to the report, so it includes the primal
+    heuristics and strong branching, the master time and the pricing time only include the solves and the pricing
+    stages of the node itself
+    the labels are those of the labeling stages, the heuristics of class PricingHeuristic don't create labels
+*/
+public class NodeStatistics {
+    long start = System.nanoTime();
+    int iterations;     // column generation iterations
+    int masterSolves;
+    long masterNanos;
+    int pricingCalls;   // the pricing stages run, each call of pricing() runs one to three of them
+    long pricingNanos;
+    long labelsExtended;
+    long labelsCreated;
+    long labelsDominated;
+    int columnsAdded;   // the routes added to the node by pricing
+    int cutsAdded;
+    Telemetry.NodeEvent event;  // the JFR event of a node of the tree, see Telemetry.begin(), null for the other nodes
+
+    public void master(long nanos){
+        this.masterSolves++;
+        this.masterNanos += nanos;
+    }
+
+    // a pricing stage that took 'nanos' and added 'columns' routes, the labels of 'labeling' are counted unless it is null
+    public void pricing(long nanos, Labeling labeling, int columns){
+        this.pricingCalls++;
+        this.pricingNanos += nanos;
+        this.columnsAdded += columns;
+        if (labeling != null){
+            this.labelsExtended += labeling.labelsExtended;
+            this.labelsCreated += labeling.labelsCreated;
+            this.labelsDominated += labeling.labelsDominated;
+        }
+    }
+
+    public long elapsedNanos(){
+        return System.nanoTime() - this.start;
+    }
+}
@@ -0,0 +1,202 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+/*
+The class is the first stage of pricing, it looks for negative routes with construction and local search heuristics
+    before any label is created, only elementary routes are built, so they are valid for every pricing relaxation
+    greedy() starts a route at each customer and appends the unvisited customer with the lowest reduced arc cost
+    until the capacity is exhausted, the prefix with the lowest reduced cost is kept if it is negative
+    insertion() modifies the routes with zero reduced cost, which are the basic columns of the master problem, by
+    inserting an unvisited customer at its cheapest position or by removing a customer
+    only the arcs of the node are used, the reduced cost of the arcs is the one computed by Labeling.reducedCost(), so
+    it includes the duals of the cuts, and the reduced cost of a route is the sum of the reduced cost of its arcs
+    with UserParam.pricingThreads > 1 both heuristics run at the same time on the same duals, each stops once it has
+    found more than maxRoute routes, and the routes of greedy() are added before those of insertion()
+*/
+public class PricingHeuristic {
+    UserParam user;     // the solve of the node, whose instance the routes belong to
+    boolean[][] available;  // if the arc (i,j) is an arc of the node
+    double[][] reducedCost;     // reduced cost of each arc of the node under the current duals
+    int maxRoute;   // the heuristics stop when more than maxRoute routes have been added
+
+    PricingHeuristic(UserParam user, int[][] successors){
+        this.user = user;
+        int n = user.nodeCount;
+        this.available = new boolean[n][n];
+        for (int i=0;i<n;i++){
+            for (int j: successors[i]){
+                this.available[i][j] = true;
+            }
+        }
+    }
+
+    // add the negative routes found by both heuristics, return the number of added routes
+    public int pricing(double[][] reducedCost, int maxRoute, List<Route> candidates, List<Route> routes){
+        this.maxRoute = maxRoute;
+        this.reducedCost = reducedCost;
+        Set<Route> found = new HashSet<Route>();
+        if (this.user.pricing.threads() == 1){
+            if (!greedy(found, routes)){
+                insertion(candidates, found, routes);
+            }
+            return found.size();
+        }
+        List<Route> greedy = new ArrayList<Route>();
+        List<Route> inserted = new ArrayList<Route>();
+        this.user.pricing.run(2, t -> {
+            if (t == 0){
+                greedy(new HashSet<Route>(), greedy);
+            }else{
+                insertion(candidates, new HashSet<Route>(), inserted);
+            }
+        });
+        for (List<Route> heuristic: Arrays.asList(greedy, inserted)){
+            for (Route route: heuristic){
+                if (found.add(route)){
+                    routes.add(route);
+                    if (found.size() > maxRoute){
+                        return found.size();
+                    }
+                }
+            }
+        }
+        return found.size();
+    }
+
+    private double reducedCost(int i, int j){
+        return this.reducedCost[i][j];
+    }
+
+    private double reducedCost(int[] path){
+        double sum = reducedCost(path[path.length-1], 0);
+        for (int p=0;p<path.length-1;p++){
+            sum += reducedCost(path[p], path[p+1]);
+        }
+        return sum;
+    }
+
+    // add the route of the path unless it was already found, return true if more than maxRoute routes have been added
+    private boolean add(int[] path, Set<Route> found, List<Route> routes){
+        Route route = new Route(path, this.user);
+        if (found.add(route)){
+            routes.add(route);
+        }
+        return found.size() > this.maxRoute;
+    }
+
+    // return true if more than maxRoute routes have been added
+    private boolean greedy(Set<Route> found, List<Route> routes){
+        int n = this.user.nodeCount;
+        double[] demand = this.user.demand;
+        double capacity = this.user.capacity;
+        int[] path = new int[n];
+        boolean[] visited = new boolean[n];
+        for (int start=1;start<n;start++){
+            if (!this.available[0][start] || demand[start] > capacity){
+                continue;
+            }
+            Arrays.fill(visited, false);
+            path[1] = start;
+            visited[start] = true;
+            int length = 2;
+            double load = demand[start];
+            double cost = reducedCost(0, start);
+            double best = Labeling.threshold;
+            int bestLength = 0;
+            while (true){
+                int last = path[length-1];
+                if (this.available[last][0] && cost + reducedCost(last, 0) < best){
+                    best = cost + reducedCost(last, 0);
+                    bestLength = length;
+                }
+                int next = -1;
+                for (int j=1;j<n;j++){
+                    if (!visited[j] && this.available[last][j] && load + demand[j] <= capacity &&
+                            (next < 0 || reducedCost(last, j) < reducedCost(last, next))){
+                        next = j;
+                    }
+                }
+                if (next < 0){
+                    break;
+                }
+                path[length++] = next;
+                visited[next] = true;
+                load += demand[next];
+                cost += reducedCost(last, next);
+            }
+            if (bestLength > 0 && add(Arrays.copyOf(path, bestLength), found, routes)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertion(List<Route> candidates, Set<Route> found, List<Route> routes){
+        int n = this.user.nodeCount;
+        double[] demand = this.user.demand;
+        double capacity = this.user.capacity;
+        for (Route route: candidates){
+            int[] path = route.path;
+            if (route.customers.length != path.length - 1){
+                continue;
+            }
+            double reducedCost = reducedCost(path);
+            if (Math.abs(reducedCost) > UserParam.tolerance){
+                continue;
+            }
+            double load = 0.0;
+            for (int customer: route.customers){
+                load += demand[customer];
+            }
+//            insert customer k between path[p] and its successor at the cheapest position
+            for (int k=1;k<n;k++){
+                if (route.visits(k) || load + demand[k] > capacity){
+                    continue;
+                }
+                double best = Labeling.threshold - reducedCost;
+                int position = -1;
+                for (int p=0;p<path.length;p++){
+                    int a = path[p];
+                    int b = p < path.length - 1 ? path[p+1] : 0;
+                    if (!this.available[a][k] || !this.available[k][b]){
+                        continue;
+                    }
+                    double delta = reducedCost(a, k) + reducedCost(k, b) - reducedCost(a, b);
+                    if (delta < best){
+                        best = delta;
+                        position = p;
+                    }
+                }
+                if (position >= 0){
+                    int[] inserted = new int[path.length + 1];
+                    System.arraycopy(path, 0, inserted, 0, position + 1);
+                    inserted[position + 1] = k;
+                    System.arraycopy(path, position + 1, inserted, position + 2, path.length - position - 1);
+                    if (add(inserted, found, routes)){
+                        return;
+                    }
+                }
+            }
+//            remove the customer at position p
+            for (int p=1;p<path.length && path.length > 2;p++){
+                int a = path[p-1];
+                int b = p < path.length - 1 ? path[p+1] : 0;
+                if (!this.available[a][b]){
+                    continue;
+                }
+                double delta = reducedCost(a, b) - reducedCost(a, path[p]) - reducedCost(path[p], b);
+                if (reducedCost + delta < Labeling.threshold){
+                    int[] removed = new int[path.length - 1];
+                    System.arraycopy(path, 0, removed, 0, p);
+                    System.arraycopy(path, p + 1, removed, p, path.length - p - 1);
+                    if (add(removed, found, routes)){
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
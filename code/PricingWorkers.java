@@ -0,0 +1,62 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+/*
+The class runs the tasks of one pricing in parallel, each solve has its own instance, the 'pricing' of its UserParam,
+    whose pool of UserParam.pricingThreads threads is shared by all nodes and all workers of the tree search of the
+    solve, so concurrent solves never share a pool and a solve can't stop the pool of another one
+    run(tasks, task) calls task.accept(t) for each t from 0 to tasks-1 and returns when all calls are done, a task that
+    fails fails the whole run, with one thread or one task the calls are made by the calling thread in order
+    the tasks are given their index, so a caller that keeps the result of each task apart and merges them in index
+    order gets the same result whatever the number of threads
+    the pool is only started by the first run with several tasks, shutdown() stops it at the end of the solve, a
+    later run starts a new one
+*/
+public class PricingWorkers {
+    private final int threads;
+    private ForkJoinPool pool;
+
+    PricingWorkers(int threads){
+        this.threads = Math.max(threads, 1);
+    }
+
+    public int threads(){
+        return this.threads;
+    }
+
+    private synchronized ForkJoinPool pool(){
+        if (this.pool == null){
+            this.pool = new ForkJoinPool(this.threads);
+        }
+        return this.pool;
+    }
+
+    public void run(int tasks, IntConsumer task){
+        if (tasks == 1 || this.threads == 1){
+            for (int t=0;t<tasks;t++){
+                task.accept(t);
+            }
+            return;
+        }
+        ForkJoinPool pool = pool();
+        List<ForkJoinTask<?>> running = new ArrayList<ForkJoinTask<?>>();
+        for (int t=0;t<tasks;t++){
+            int index = t;
+            running.add(pool.submit(() -> task.accept(index)));
+        }
+        for (ForkJoinTask<?> future: running){
+            future.join();
+        }
+    }
+
+    // stop the threads of the pool once the solve is over
+    public synchronized void shutdown(){
+        if (this.pool != null){
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+}
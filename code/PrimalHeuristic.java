@@ -0,0 +1,250 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+/*
+The class looks for integer solutions before the branching tree finds them, so the incumbent can prune nodes early
+    run() is called on an optimized fractional node every UserParam.heuristicFrequency nodes, it solves the restricted
+    master problem as an integer problem and then dives from the node if UserParam.diving is set
+    restrictedMaster() solves the set-partitioning problem over the elementary routes of the node with the lowest
+    reduced cost by a depth first search, the customer with the fewest routes left is covered first, by the routes in
+    increasing order of reduced cost, so the routes of the relaxed solution are tried first, and a branch is cut when
+    its cost plus the cheapest cost share of the uncovered customers reaches the best solution, the search stops after
+    maxSearchNodes nodes
+    dive() fixes the route with the largest fractional value and optimizes the node again, until its solution is
+    integer, infeasible or can't improve the incumbent, a route is fixed by removing the arcs that would leave or enter
+    its customers in another way, so no branching decision of the tree is needed
+savings() builds the routes of the savings heuristic of Clarke and Wright, which seed the column pool and the incumbent
+    before the root is optimized
+*/
+public class PrimalHeuristic {
+    static final int maxColumns = 1000;     // the routes of the restricted master problem
+    static final int maxSearchNodes = 20000;   // search nodes of the restricted master problem
+
+    // the primal heuristics of an optimized node, the nodes of the pool that can't improve a new incumbent are dropped
+    public static void run(BnbNode node, MasterProblem mp, UserParam user, NodePool unexplored){
+        if (!node.feasible || node.pruned || node.fractionArc.isEmpty()){
+            return;
+        }
+        List<Route> routes = restrictedMaster(node.routes, node.reducedCosts, user.upperBound(), user.nodeCount);
+        if (routes != null){
+            update(routes, "restricted master", user, unexplored);
+        }
+        if (UserParam.diving){
+            dive(node, mp, user, unexplored);
+        }
+    }
+
+    private static void update(List<Route> routes, String heuristic, UserParam user, NodePool unexplored){
+        double cost = 0.0;
+        for (Route route: routes){
+            cost += route.cost;
+        }
+        if (user.updateIncumbent(cost, routes)){
+            user.control.message("Heuristic solution found by " + heuristic + ": " + cost);
+            if (unexplored != null){
+                unexplored.prune(cost);
+            }
+        }
+    }
+
+    // the best partition of the customers 1..n-1 by the candidate routes whose cost is below the upper bound, or null,
+    // reducedCost[r] is the reduced cost of routes[r] in the node
+    public static List<Route> restrictedMaster(List<Route> routes, double[] reducedCost, double upperBound, int n){
+        List<Integer> order = new ArrayList<Integer>();
+        for (int r=0;r<routes.size();r++){
+            Route route = routes.get(r);
+            if (route.customers.length == route.path.length - 1){
+                order.add(r);
+            }
+        }
+        order.sort(Comparator.comparingDouble(r -> reducedCost[r]));
+        List<Route> candidates = new ArrayList<Route>();
+        for (int r: order.subList(0, Math.min(maxColumns, order.size()))){
+            candidates.add(routes.get(r));
+        }
+        double[] share = new double[n];
+        Arrays.fill(share, Double.POSITIVE_INFINITY);
+        for (Route route: candidates){
+            for (int customer: route.customers){
+                share[customer] = Math.min(share[customer], route.cost / route.customers.length);
+            }
+        }
+        for (int i=1;i<n;i++){
+            if (share[i] == Double.POSITIVE_INFINITY){
+                return null;
+            }
+        }
+        Search search = new Search(candidates, share, upperBound - UserParam.tolerance);
+        search.cover(new boolean[n], n - 1, 0.0, new ArrayList<Route>());
+        return search.best;
+    }
+
+    // the depth first search of the restricted master problem
+    private static class Search {
+        List<Route> candidates;
+        double[] share;
+        double bestCost;
+        List<Route> best;
+        int nodes;
+
+        Search(List<Route> candidates, double[] share, double bestCost){
+            this.candidates = candidates;
+            this.share = share;
+            this.bestCost = bestCost;
+        }
+
+        void cover(boolean[] covered, int uncovered, double cost, List<Route> chosen){
+            if (uncovered == 0){
+                this.bestCost = cost;
+                this.best = new ArrayList<Route>(chosen);
+                return;
+            }
+            if (++this.nodes > maxSearchNodes){
+                return;
+            }
+            double bound = cost;
+            for (int i=1;i<covered.length;i++){
+                if (!covered[i]){
+                    bound += this.share[i];
+                }
+            }
+            if (bound >= this.bestCost){
+                return;
+            }
+//            the uncovered customer with the fewest routes that only visit uncovered customers
+            int[] count = new int[covered.length];
+            for (Route route: this.candidates){
+                if (fits(route, covered)){
+                    for (int customer: route.customers){
+                        count[customer]++;
+                    }
+                }
+            }
+            int next = -1;
+            for (int i=1;i<covered.length;i++){
+                if (!covered[i] && (next < 0 || count[i] < count[next])){
+                    next = i;
+                }
+            }
+            if (count[next] == 0){
+                return;
+            }
+            for (Route route: this.candidates){
+                if (!route.visits(next) || !fits(route, covered)){
+                    continue;
+                }
+                for (int customer: route.customers){
+                    covered[customer] = true;
+                }
+                chosen.add(route);
+                cover(covered, uncovered - route.customers.length, cost + route.cost, chosen);
+                chosen.remove(chosen.size() - 1);
+                for (int customer: route.customers){
+                    covered[customer] = false;
+                }
+                if (this.nodes > maxSearchNodes){
+                    return;
+                }
+            }
+        }
+
+        private static boolean fits(Route route, boolean[] covered){
+            for (int customer: route.customers){
+                if (covered[customer]){
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // fix the route with the largest fractional value and optimize again, until the solution is integer
+    public static void dive(BnbNode node, MasterProblem mp, UserParam user, NodePool unexplored){
+        BnbNode dive = node;
+        for (int depth=0;depth<user.nodeCount;depth++){
+            Route fixed = null;
+            double largest = 0.0;
+            for (int k=0;k<dive.solutionRoutes.size();k++){
+                double value = dive.solutionValues.get(k);
+                if (value < 1 - UserParam.tolerance && value > largest){
+                    largest = value;
+                    fixed = dive.solutionRoutes.get(k);
+                }
+            }
+            if (fixed == null){
+                return;
+            }
+            dive = dive.fix(fixed);
+            dive.columnGeneration(mp, user);
+            if (!dive.feasible || dive.pruned || dive.interrupted){
+                return;
+            }
+            if (dive.fractionArc.isEmpty()){
+                update(dive.solutionRoutes, "diving", user, unexplored);
+                return;
+            }
+        }
+    }
+
+    /*
+    the routes of the savings heuristic, every customer starts in its own route, then the routes ending at i and
+        starting at j are merged in decreasing order of the saving cost[i][0]+cost[0][j]-cost[i][j] as long as the
+        merged route fits in the capacity, the routes are added to the column pool and become the incumbent
+     */
+    public static void savings(UserParam user){
+        int n = user.nodeCount;
+        double[][] cost = user.cost;
+        List<double[]> savings = new ArrayList<double[]>();
+        for (int i=1;i<n;i++){
+            for (int j: user.successors[i]){
+                if (j != 0 && cost[i][0] < Double.POSITIVE_INFINITY && cost[0][j] < Double.POSITIVE_INFINITY){
+                    double saving = cost[i][0] + cost[0][j] - cost[i][j];
+                    if (saving > 0){
+                        savings.add(new double[]{saving, i, j});
+                    }
+                }
+            }
+        }
+        savings.sort(Comparator.comparingDouble(saving -> -saving[0]));
+        int[] next = new int[n];
+        int[] previous = new int[n];
+        int[] head = new int[n];    // the first customer of the route of each customer
+        double[] load = new double[n];  // the load of the route of each first customer
+        for (int i=1;i<n;i++){
+            if (cost[0][i] == Double.POSITIVE_INFINITY || cost[i][0] == Double.POSITIVE_INFINITY){
+                return;
+            }
+            head[i] = i;
+            load[i] = user.demand[i];
+        }
+        for (double[] saving: savings){
+            int i = (int) saving[1];
+            int j = (int) saving[2];
+            if (next[i] != 0 || previous[j] != 0 || head[i] == head[j] ||
+                    load[head[i]] + load[j] > user.capacity){
+                continue;
+            }
+            next[i] = j;
+            previous[j] = i;
+            load[head[i]] += load[j];
+            for (int k=j;k!=0;k=next[k]){
+                head[k] = head[i];
+            }
+        }
+        List<Route> routes = new ArrayList<Route>();
+        for (int i=1;i<n;i++){
+            if (previous[i] != 0){
+                continue;
+            }
+            List<Integer> path = new ArrayList<Integer>();
+            path.add(0);
+            for (int k=i;k!=0;k=next[k]){
+                path.add(k);
+            }
+            routes.add(user.columnPool.add(new Route(path.stream().mapToInt(Integer::intValue).toArray(), user)));
+        }
+        update(routes, "savings", user, null);
+    }
+}
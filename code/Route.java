@@ -2,87 +2,153 @@ package BnP_Framework;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 /*
 Each instance of this class is a representative of the route
-    'path' attribute records the path in List, such as [0,1,2,3], which means 0->1->2->3->0
+    'path' attribute records the path in an int array, such as [0,1,2,3], which means 0->1->2->3->0
     'cost' attribute records the visiting cost of this path
     toColumn(int n) transform a path into a column of LP, it returns a double array with length n-1
     containsArc() and notContainsArc() check if the route needs to be deleted in the branching node
+    two routes are equal if they have the same path, so the column pool can find duplicates by the hash of the path
+    'lastActive' and 'reducedCost' are maintained by the column pool to choose the routes to evict, they are only
+    written and read under the lock of the pool, 'evicted' is set by the pool and read by the master problems of all
+    workers
+the route is indexed once when it is created, 'visits' is the bitset of the visited customers, 'arcIds' are the sorted
+    ids i*nodeCount+j of its arcs, including the one back to the depot, and 'customers' and 'visitCount' are the sparse
+    coverage coefficients of its column, so arc membership and coverage are answered without scanning the path
+    'nodeCount' is the number of vertices of the instance of the route, which the arc ids and the duals of the cuts
+    are indexed by
  */
 public class Route {
-    List<Integer> path;
+    int[] path;
     double cost;
-    Route(List<Integer> path, double cost){
+    int hash;
+    long[] visits;
+    int[] arcIds;
+    int[] customers;    // the visited customers in increasing order
+    double[] visitCount;    // the number of visits of each customer of 'customers'
+    int lastActive;     // the last tick of the column pool in which the route had a positive value
+    double reducedCost;     // the reduced cost of the route when it was last evaluated
+    volatile boolean evicted;    // if the route has been removed from the column pool
+    int id = -1;    // the id of the route in the column pool, -1 until it is added
+    int nodeCount;
+    Route(int[] path, double cost, int nodeCount){
         this.path = path;
         this.cost = cost;
+        this.nodeCount = nodeCount;
+        index();
     }
-    Route(List<Integer> path){
+    // the route of the instance of user, its cost is the cost of its arcs
+    Route(int[] path, UserParam user){
         this.path = path;
-        calCost(UserParam.cost);
+        this.nodeCount = user.nodeCount;
+        index();
+        calCost(user.cost);
+    }
+    private void index(){
+        int n = this.nodeCount;
+        this.hash = Arrays.hashCode(this.path);
+        this.visits = new long[(n + 63) / 64];
+        this.arcIds = new int[this.path.length];
+        int[] sorted = this.path.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i=0;i<sorted.length;i++){
+            if (sorted[i] != 0 && (i == 0 || sorted[i] != sorted[i-1])){
+                distinct++;
+            }
+        }
+        this.customers = new int[distinct];
+        this.visitCount = new double[distinct];
+        distinct = 0;
+        for (int i=0;i<sorted.length;i++){
+            if (sorted[i] == 0){
+                continue;
+            }
+            if (i > 0 && sorted[i] == sorted[i-1]){
+                this.visitCount[distinct-1]++;
+            }else{
+                this.customers[distinct] = sorted[i];
+                this.visitCount[distinct++] = 1.0;
+            }
+            this.visits[sorted[i] >>> 6] |= 1L << sorted[i];
+        }
+        for (int i=0;i<this.path.length;i++){
+            int next = i < this.path.length-1 ? this.path[i+1] : 0;
+            this.arcIds[i] = this.path[i] * n + next;
+        }
+        Arrays.sort(this.arcIds);
     }
     // transform the route in to column of the arc-flow formulation, the number of customer is needed
     // the function is for single-depot problem, since we default 0 is depot and 1:n is the customer
     // you can also override if for the specified problem
     public double[] toColumn(int n){
         double[] column = new double[n-1];
-        for (int i=1;i<n;i++){
-            if (this.path.contains(i)){
-                int visitedNode = i;
-                column[i-1] = this.path.stream().filter(v->v==visitedNode).count();
-            }else{
-                column[i-1] = 0.0;
-            }
+        for (int i=0;i<this.customers.length;i++){
+            column[this.customers[i]-1] = this.visitCount[i];
         }
         return column;
     }
-    public void calCost(Map<List<Integer>, Double> cost){
+    public void calCost(double[][] cost){
         this.cost = 0.0;
-        for (int i=0;i<this.path.size()-1;i++){
-            List<Integer> arc = Arrays.asList(this.path.get(i), this.path.get(i+1));
-            this.cost += cost.get(arc);
+        for (int i=0;i<this.path.length-1;i++){
+            this.cost += cost[this.path[i]][this.path[i+1]];
         }
-        this.cost += cost.get(Arrays.asList(this.path.get(this.path.size()-1), 0));
+        this.cost += cost[this.path[this.path.length-1]][0];
     }
-    @Override
-    public String toString(){
-        return this.path.toString();
+    // the reduced cost of the route under the dual value of each customer
+    public double reducedCost(double[] pi){
+        double reducedCost = this.cost;
+        for (int i=0;i<this.customers.length;i++){
+            reducedCost -= this.visitCount[i] * pi[this.customers[i]];
+        }
+        return reducedCost;
     }
-    public boolean containsArc(List<Integer> arc){
-        int start = arc.get(0);
-        int end = arc.get(1);
-        if(this.path.contains(start) && this.path.contains(end)){
-            if(this.path.indexOf(end) - this.path.indexOf(start) == 1){
-                return true;
-            }else{
+    // the reduced cost of the route when the master problem also has cuts, the dual of the k-th cut is pi[nodeCount+k]
+    public double reducedCost(double[] pi, List<Cut> cuts){
+        double reducedCost = reducedCost(pi);
+        for (int k=0;k<cuts.size();k++){
+            double dual = pi[this.nodeCount + k];
+            if (dual != 0.0){
+                reducedCost -= dual * cuts.get(k).coefficient(this);
+            }
+        }
+        return reducedCost;
+    }
+    public boolean visits(int v){
+        return (this.visits[v >>> 6] & (1L << v)) != 0;
+    }
+    public boolean containsArc(int start, int end){
+        return (start == 0 || visits(start)) && Arrays.binarySearch(this.arcIds, start * this.nodeCount + end) >= 0;
+    }
+    // if all arcs of the route, including the one back to the depot, are in the bitset of arc ids
+    public boolean compatible(long[] arcs){
+        for (int id: this.arcIds){
+            if ((arcs[id >>> 6] & (1L << id)) == 0){
                 return false;
             }
-        }else{
-            return false;
         }
+        return true;
+    }
+    @Override
+    public String toString(){
+        return Arrays.toString(this.path);
+    }
+    @Override
+    public boolean equals(Object other){
+        return other instanceof Route && this.hash == ((Route) other).hash &&
+                Arrays.equals(this.path, ((Route) other).path);
     }
+    @Override
+    public int hashCode(){
+        return this.hash;
+    }
+    public boolean containsArc(List<Integer> arc){
+        return containsArc(arc.get(0), arc.get(1));
+    }
+    // the route has to be deleted if it visits the start or the end of the arc without using the arc
     public boolean notContainsArc(List<Integer> arc){
         int start = arc.get(0);
         int end = arc.get(1);
-        if(this.path.contains(start)) {
-            if(this.path.indexOf(start) != this.path.size()-1){
-                if(this.path.get(this.path.indexOf(start)+1) != end){
-                    return true;
-                }else{
-                    return false;
-                }
-            }else{
-//                no fraction arc to 0
-                return true;
-            }
-        }else if(this.path.contains(end)) {
-            if (this.path.get(this.path.indexOf(end) - 1) != start) {
-                return true;
-            } else {
-                return false;
-            }
-        }else{
-            return false;
-        }
+        return (visits(start) || visits(end)) && !containsArc(start, end);
     }
 }
@@ -0,0 +1,680 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+/*
+The class is the pure Java implementation of the master problem, a revised simplex with bounded variables
+    the LP has one row per customer and one per cut, so the inverse of the basis is kept as a dense matrix, it is
+    updated by each pivot and recomputed from the basic columns every refactorPeriod pivots and at the start of each
+    solve, the route columns are stored sparse, a cut adds its coefficients to the columns that enter its set
+    the route columns are bounded by [0,1], load() sets the upper bound of the routes that are not available in the
+    node to 0, every row has two logical columns, the artificial column bounded by [0,inf) that costs bigM and the
+    surplus column with coefficient -1, which is bounded by [0,inf) for a cut row and fixed to 0 for a customer row
+    a new cut row enters with its surplus column basic, so the duals of the previous solve stay dual feasible and the
+    dual simplex repairs the violated cut
+    the basis of the last solve is kept, after add() the basis is still primal feasible and the primal simplex
+    continues from it, after load() the basis may become primal infeasible but stays dual feasible for the routes of
+    the previous node, so the dual simplex restores feasibility first, routes that are dual infeasible at that point
+    are held at their bound until the primal simplex takes over
+    if the basis becomes singular or the dual simplex fails, the simplex restarts from the basis of artificial columns
+    after degenerateLimit degenerate pivots in a row the primal simplex follows Bland's rule until the objective moves
+*/
+public class SimplexMaster implements MasterProblem {
+    static final double feasibilityTol = 1e-9;
+    static final double optimalityTol = 1e-9;
+    static final double pivotTol = 1e-9;
+    static final int refactorPeriod = 100;  // pivots between two inversions of the basis
+    private static final byte LOWER = 0;
+    private static final byte UPPER = 1;
+    private static final byte BASIC = 2;
+
+    int rows;
+    int customerRows;
+    double[] rhs;
+    boolean[] greater;  // if the row is a cut, >= instead of =
+    List<Cut> cuts = new ArrayList<Cut>();
+    double bigM;
+    // the route columns, a variable v >= 0 is a route column and v < 0 a logical column, -1-2i is the artificial
+    // column and -2-2i the surplus column of row i
+    int n;
+    List<Route> columns = new ArrayList<Route>();
+    Map<Route, Integer> index = new IdentityHashMap<Route, Integer>();  // column index of each route
+    int[][] colRow = new int[64][];     // the rows of the nonzero coefficients of each route column
+    double[][] colValue = new double[64][];
+    double[] cost = new double[64];
+    double[] upper = new double[64];
+    byte[] state = new byte[64];
+    byte[] logicalState;
+    // the basis
+    int[] basis;    // the basic variable of each row
+    double[][] inverse;
+    double[] xB;    // the value of the basic variables
+    double[] y;     // the duals of the rows
+    int pivots;     // pivots since the last inversion
+    int iterations;
+    int degenerateLimit = 50;   // degenerate pivots in a row before Bland's rule is used
+    int blandPivots;    // the pivots of the last solve that followed Bland's rule
+    Status status;
+    double objVal;
+    double[] x = new double[0];     // the value of the route columns after solve()
+
+    SimplexMaster(UserParam user){
+        this.rows = user.nodeCount - 1;
+        this.customerRows = this.rows;
+        this.rhs = new double[this.rows];
+        Arrays.fill(this.rhs, 1.0);
+        this.greater = new boolean[this.rows];
+        for (int i=1;i<user.nodeCount;i++){
+            this.bigM += user.cost[0][i] + user.cost[i][0];
+        }
+        this.logicalState = new byte[2 * this.rows];
+        this.basis = new int[this.rows];
+        this.inverse = new double[this.rows][this.rows];
+        this.xB = new double[this.rows];
+        this.y = new double[this.rows];
+        coldStart();
+    }
+
+    @Override
+    public void load(List<Route> routes){
+        purge();
+        boolean[] available = new boolean[this.n + routes.size()];
+        for (Route route: routes){
+            Integer column = this.index.get(route);
+            if (column == null){
+                column = add(route);
+            }
+            available[column] = true;
+        }
+        for (int j=0;j<this.n;j++){
+            this.upper[j] = available[j] ? 1.0 : 0.0;
+            if (!available[j] && this.state[j] == UPPER){
+                this.state[j] = LOWER;
+            }
+        }
+    }
+
+    // remove the nonbasic columns of the routes evicted from the column pool, a basic one is removed once it left
+    // the basis
+    private void purge(){
+        int[] moved = new int[this.n];
+        int kept = 0;
+        for (int j=0;j<this.n;j++){
+            Route route = this.columns.get(j);
+            if (route.evicted && this.state[j] != BASIC){
+                this.index.remove(route);
+                moved[j] = -1;
+                continue;
+            }
+            this.columns.set(kept, route);
+            this.colRow[kept] = this.colRow[j];
+            this.colValue[kept] = this.colValue[j];
+            this.cost[kept] = this.cost[j];
+            this.upper[kept] = this.upper[j];
+            this.state[kept] = this.state[j];
+            this.index.put(route, kept);
+            moved[j] = kept++;
+        }
+        if (kept == this.n){
+            return;
+        }
+        this.columns.subList(kept, this.n).clear();
+        this.n = kept;
+        for (int i=0;i<this.rows;i++){
+            if (this.basis[i] >= 0){
+                this.basis[i] = moved[this.basis[i]];
+            }
+        }
+    }
+
+    @Override
+    public void add(List<Route> routes){
+        for (Route route: routes){
+            add(route);
+        }
+    }
+
+    private int add(Route route){
+        int column = this.n++;
+        if (column == this.cost.length){
+            this.colRow = Arrays.copyOf(this.colRow, column * 2);
+            this.colValue = Arrays.copyOf(this.colValue, column * 2);
+            this.cost = Arrays.copyOf(this.cost, column * 2);
+            this.upper = Arrays.copyOf(this.upper, column * 2);
+            this.state = Arrays.copyOf(this.state, column * 2);
+        }
+        int size = route.customers.length;
+        int[] row = new int[size + this.cuts.size()];
+        double[] value = new double[row.length];
+        for (int k=0;k<size;k++){
+            row[k] = route.customers[k]-1;
+            value[k] = route.visitCount[k];
+        }
+        for (int k=0;k<this.cuts.size();k++){
+            double coefficient = this.cuts.get(k).coefficient(route);
+            if (coefficient != 0.0){
+                row[size] = this.customerRows + k;
+                value[size++] = coefficient;
+            }
+        }
+        this.colRow[column] = Arrays.copyOf(row, size);
+        this.colValue[column] = Arrays.copyOf(value, size);
+        this.cost[column] = route.cost;
+        this.upper[column] = 1.0;
+        this.state[column] = LOWER;
+        this.columns.add(route);
+        this.index.put(route, column);
+        return column;
+    }
+
+    // append the rows of the cuts, their surplus columns are basic
+    @Override
+    public void addCuts(List<Cut> cuts){
+        if (cuts.isEmpty()){
+            return;
+        }
+        int first = this.rows;
+        this.rows += cuts.size();
+        this.rhs = Arrays.copyOf(this.rhs, this.rows);
+        this.greater = Arrays.copyOf(this.greater, this.rows);
+        this.logicalState = Arrays.copyOf(this.logicalState, 2 * this.rows);
+        this.basis = Arrays.copyOf(this.basis, this.rows);
+        this.xB = new double[this.rows];
+        this.y = new double[this.rows];
+        for (int r=first;r<this.rows;r++){
+            Cut cut = cuts.get(r - first);
+            this.cuts.add(cut);
+            this.rhs[r] = cut.rhs;
+            this.greater[r] = true;
+            this.basis[r] = -2-2*r;
+            this.logicalState[2*r] = LOWER;
+            this.logicalState[2*r+1] = BASIC;
+        }
+        for (int j=0;j<this.n;j++){
+            Route route = this.columns.get(j);
+            int size = this.colRow[j].length;
+            int[] row = Arrays.copyOf(this.colRow[j], size + cuts.size());
+            double[] value = Arrays.copyOf(this.colValue[j], row.length);
+            for (int r=first;r<this.rows;r++){
+                double coefficient = cuts.get(r - first).coefficient(route);
+                if (coefficient != 0.0){
+                    row[size] = r;
+                    value[size++] = coefficient;
+                }
+            }
+            this.colRow[j] = Arrays.copyOf(row, size);
+            this.colValue[j] = Arrays.copyOf(value, size);
+        }
+//        the inverse is rebuilt for the new rows by the next solve
+        this.inverse = new double[0][];
+    }
+
+    @Override
+    public int cutCount(){
+        return this.cuts.size();
+    }
+
+    @Override
+    public Status solve(){
+        this.iterations = 0;
+        this.blandPivots = 0;
+        if (!refactor()){
+            coldStart();
+        }
+        computeXB();
+        if (!primalFeasible()){
+            if (dual() != Status.OPTIMAL){
+                coldStart();
+                computeXB();
+            }
+        }
+        this.status = primal();
+        computeDuals();
+        this.objVal = 0.0;
+        if (this.x.length < this.n){
+            this.x = new double[this.cost.length];
+        }
+        for (int j=0;j<this.n;j++){
+            this.x[j] = this.state[j] == UPPER ? this.upper[j] : 0.0;
+        }
+        for (int i=0;i<this.rows;i++){
+            if (this.basis[i] >= 0){
+                this.x[this.basis[i]] = this.xB[i];
+            }else{
+                this.objVal += costOf(this.basis[i]) * this.xB[i];
+            }
+        }
+        for (int j=0;j<this.n;j++){
+            this.objVal += this.cost[j] * this.x[j];
+        }
+        return this.status;
+    }
+
+    @Override
+    public double objVal(){
+        return this.objVal;
+    }
+
+    @Override
+    public double[] duals(){
+        double[] pi = new double[this.customerRows + 1 + this.cuts.size()];
+        System.arraycopy(this.y, 0, pi, 1, this.customerRows);
+        System.arraycopy(this.y, this.customerRows, pi, this.customerRows + 1, this.cuts.size());
+        return pi;
+    }
+
+    @Override
+    public double value(Route route){
+        return this.x[this.index.get(route)];
+    }
+
+    @Override
+    public double infeasibility(){
+        double sum = 0.0;
+        for (int i=0;i<this.rows;i++){
+            if (this.basis[i] < 0 && this.basis[i] % 2 != 0){
+                sum += this.xB[i];
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public void dispose(){
+        this.columns.clear();
+        this.index.clear();
+    }
+
+    private int iterationLimit(){
+        return 1000 + 20 * (this.rows + this.n);
+    }
+
+    // the artificial columns cost bigM, the surplus columns nothing
+    private double costOf(int v){
+        return v >= 0 ? this.cost[v] : v % 2 != 0 ? this.bigM : 0.0;
+    }
+
+    private double upperOf(int v){
+        if (v >= 0){
+            return this.upper[v];
+        }
+        return v % 2 != 0 || this.greater[rowOf(v)] ? Double.POSITIVE_INFINITY : 0.0;
+    }
+
+    // the row of a logical column
+    private static int rowOf(int v){
+        return (-1-v) / 2;
+    }
+
+    // the coefficient of a logical column in its row
+    private static double sign(int v){
+        return v % 2 != 0 ? 1.0 : -1.0;
+    }
+
+    private byte stateOf(int v){
+        return v >= 0 ? this.state[v] : this.logicalState[-1-v];
+    }
+
+    private void setState(int v, byte state){
+        if (v >= 0){
+            this.state[v] = state;
+        }else{
+            this.logicalState[-1-v] = state;
+        }
+    }
+
+    // the product of a row vector and the column of variable v
+    private double dot(double[] row, int v){
+        if (v < 0){
+            return sign(v) * row[rowOf(v)];
+        }
+        int[] rows = this.colRow[v];
+        double[] value = this.colValue[v];
+        double sum = 0.0;
+        for (int k=0;k<rows.length;k++){
+            sum += value[k] * row[rows[k]];
+        }
+        return sum;
+    }
+
+    // alpha = B^-1 a_v
+    private void ftran(int v, double[] alpha){
+        if (v < 0){
+            int row = rowOf(v);
+            double sign = sign(v);
+            for (int i=0;i<this.rows;i++){
+                alpha[i] = sign * this.inverse[i][row];
+            }
+            return;
+        }
+        Arrays.fill(alpha, 0.0);
+        int[] rows = this.colRow[v];
+        double[] value = this.colValue[v];
+        for (int k=0;k<rows.length;k++){
+            int row = rows[k];
+            for (int i=0;i<this.rows;i++){
+                alpha[i] += this.inverse[i][row] * value[k];
+            }
+        }
+    }
+
+    // the basis of the artificial columns, every route and surplus column is at its lower bound
+    private void coldStart(){
+        for (int j=0;j<this.n;j++){
+            this.state[j] = LOWER;
+        }
+        if (this.inverse.length != this.rows){
+            this.inverse = new double[this.rows][this.rows];
+        }
+        for (int i=0;i<this.rows;i++){
+            this.basis[i] = -1-2*i;
+            this.logicalState[2*i] = BASIC;
+            this.logicalState[2*i+1] = LOWER;
+            Arrays.fill(this.inverse[i], 0.0);
+            this.inverse[i][i] = 1.0;
+        }
+        this.pivots = 0;
+    }
+
+    // invert the basis by Gauss-Jordan elimination with partial pivoting, return false if it is singular
+    private boolean refactor(){
+        int m = this.rows;
+        double[][] matrix = new double[m][m];
+        double[] column = new double[m];
+        for (int r=0;r<m;r++){
+            int v = this.basis[r];
+            Arrays.fill(column, 0.0);
+            if (v < 0){
+                column[rowOf(v)] = sign(v);
+            }else{
+                for (int k=0;k<this.colRow[v].length;k++){
+                    column[this.colRow[v][k]] = this.colValue[v][k];
+                }
+            }
+            for (int i=0;i<m;i++){
+                matrix[i][r] = column[i];
+            }
+        }
+        double[][] inverse = new double[m][m];
+        for (int i=0;i<m;i++){
+            inverse[i][i] = 1.0;
+        }
+        for (int c=0;c<m;c++){
+            int pivot = c;
+            for (int i=c+1;i<m;i++){
+                if (Math.abs(matrix[i][c]) > Math.abs(matrix[pivot][c])){
+                    pivot = i;
+                }
+            }
+            if (Math.abs(matrix[pivot][c]) < 1e-11){
+                return false;
+            }
+            double[] swap = matrix[c];
+            matrix[c] = matrix[pivot];
+            matrix[pivot] = swap;
+            swap = inverse[c];
+            inverse[c] = inverse[pivot];
+            inverse[pivot] = swap;
+            double p = matrix[c][c];
+            for (int k=0;k<m;k++){
+                matrix[c][k] /= p;
+                inverse[c][k] /= p;
+            }
+            for (int i=0;i<m;i++){
+                double f = matrix[i][c];
+                if (i == c || f == 0.0){
+                    continue;
+                }
+                for (int k=0;k<m;k++){
+                    matrix[i][k] -= f * matrix[c][k];
+                    inverse[i][k] -= f * inverse[c][k];
+                }
+            }
+        }
+        this.inverse = inverse;
+        this.pivots = 0;
+        return true;
+    }
+
+    // the basic variable of row r is replaced by the variable of column alpha = B^-1 a_q
+    private void pivot(int r, double[] alpha){
+        double[] pivotRow = this.inverse[r];
+        double p = alpha[r];
+        for (int k=0;k<this.rows;k++){
+            pivotRow[k] /= p;
+        }
+        for (int i=0;i<this.rows;i++){
+            double f = alpha[i];
+            if (i == r || f == 0.0){
+                continue;
+            }
+            double[] row = this.inverse[i];
+            for (int k=0;k<this.rows;k++){
+                row[k] -= f * pivotRow[k];
+            }
+        }
+        this.pivots++;
+    }
+
+    // xB = B^-1 (b - sum of the columns at their upper bound)
+    private void computeXB(){
+        double[] b = this.rhs.clone();
+        for (int j=0;j<this.n;j++){
+            if (this.state[j] == UPPER){
+                for (int k=0;k<this.colRow[j].length;k++){
+                    b[this.colRow[j][k]] -= this.colValue[j][k] * this.upper[j];
+                }
+            }
+        }
+        for (int i=0;i<this.rows;i++){
+            double sum = 0.0;
+            for (int k=0;k<this.rows;k++){
+                sum += this.inverse[i][k] * b[k];
+            }
+            this.xB[i] = sum;
+        }
+    }
+
+    // y = c_B B^-1
+    private void computeDuals(){
+        Arrays.fill(this.y, 0.0);
+        for (int i=0;i<this.rows;i++){
+            double c = costOf(this.basis[i]);
+            if (c == 0.0){
+                continue;
+            }
+            double[] row = this.inverse[i];
+            for (int k=0;k<this.rows;k++){
+                this.y[k] += c * row[k];
+            }
+        }
+    }
+
+    private double infeasibility(int i){
+        double value = this.xB[i];
+        return value < 0 ? -value : value - upperOf(this.basis[i]);
+    }
+
+    private boolean primalFeasible(){
+        for (int i=0;i<this.rows;i++){
+            if (infeasibility(i) > feasibilityTol){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean refresh(){
+        if (this.pivots < refactorPeriod){
+            return true;
+        }
+        if (!refactor()){
+            return false;
+        }
+        computeXB();
+        return true;
+    }
+
+    // primal simplex from a primal feasible basis, Dantzig's rule for the entering variable
+    private Status primal(){
+        double[] alpha = new double[this.rows];
+        int degenerate = 0;
+        while (true){
+            if (this.iterations++ > iterationLimit()){
+                return Status.ITERATION_LIMIT;
+            }
+            if (!refresh()){
+                coldStart();
+                computeXB();
+            }
+            computeDuals();
+            boolean bland = degenerate > this.degenerateLimit;
+//            the logical columns come before the route columns, which is the order of Bland's rule
+            int q = 0;
+            boolean found = false;
+            double best = optimalityTol;
+            for (int v=-2*this.rows;v<this.n && !(bland && found);v++){
+                if (stateOf(v) == BASIC || upperOf(v) == 0.0){
+                    continue;
+                }
+                double d = costOf(v) - dot(this.y, v);
+                double score = stateOf(v) == LOWER ? -d : d;
+                if (score > best){
+                    best = score;
+                    q = v;
+                    found = true;
+                }
+            }
+            if (!found){
+                return Status.OPTIMAL;
+            }
+            if (bland){
+                this.blandPivots++;
+            }
+            ftran(q, alpha);
+            int direction = stateOf(q) == LOWER ? 1 : -1;
+//            the entering variable moves by theta, it may reach its other bound before any basic variable
+            double theta = upperOf(q);
+            int leave = -1;
+            boolean toUpper = false;
+            for (int i=0;i<this.rows;i++){
+                double a = direction * alpha[i];
+                double t;
+                if (a > pivotTol){
+                    t = this.xB[i] / a;
+                }else if (a < -pivotTol && upperOf(this.basis[i]) < Double.POSITIVE_INFINITY){
+                    t = (upperOf(this.basis[i]) - this.xB[i]) / -a;
+                }else{
+                    continue;
+                }
+                t = Math.max(t, 0.0);
+                boolean tie = leave >= 0 && t <= theta + 1e-12 && (bland ?
+                        order(this.basis[i]) < order(this.basis[leave]) : Math.abs(alpha[i]) > Math.abs(alpha[leave]));
+                if (t < theta - 1e-12 || tie){
+                    theta = t;
+                    leave = i;
+                    toUpper = a < 0;
+                }
+            }
+            if (leave < 0 && theta == Double.POSITIVE_INFINITY){
+                return Status.UNBOUNDED;
+            }
+            for (int i=0;i<this.rows;i++){
+                this.xB[i] -= direction * theta * alpha[i];
+            }
+            degenerate = theta > 1e-12 ? 0 : degenerate + 1;
+            if (leave < 0){
+                setState(q, stateOf(q) == LOWER ? UPPER : LOWER);
+                continue;
+            }
+            double entering = (stateOf(q) == LOWER ? 0.0 : upperOf(q)) + direction * theta;
+            setState(this.basis[leave], toUpper ? UPPER : LOWER);
+            this.basis[leave] = q;
+            setState(q, BASIC);
+            this.xB[leave] = entering;
+            pivot(leave, alpha);
+        }
+    }
+
+    private int order(int v){
+        return v + 2 * this.rows;
+    }
+
+    /*
+    dual simplex from a primal infeasible basis, the row with the largest bound violation leaves the basis, the
+        nonbasic variables that are dual infeasible at the start are held at their bound
+    return OPTIMAL when the basis is primal feasible, INFEASIBLE if no variable can enter
+     */
+    private Status dual(){
+        double[] alpha = new double[this.rows];
+        computeDuals();
+        boolean[] held = new boolean[this.n + 2 * this.rows];
+        for (int v=-2*this.rows;v<this.n;v++){
+            if (stateOf(v) != BASIC){
+                double d = costOf(v) - dot(this.y, v);
+                held[order(v)] = stateOf(v) == LOWER ? d < -optimalityTol : d > optimalityTol;
+            }
+        }
+        while (true){
+            if (this.iterations++ > iterationLimit() || !refresh()){
+                return Status.ITERATION_LIMIT;
+            }
+            int r = -1;
+            double worst = feasibilityTol;
+            for (int i=0;i<this.rows;i++){
+                double violation = infeasibility(i);
+                if (violation > worst){
+                    worst = violation;
+                    r = i;
+                }
+            }
+            if (r < 0){
+                return Status.OPTIMAL;
+            }
+            boolean toLower = this.xB[r] < 0;
+            computeDuals();
+            double[] rho = this.inverse[r];
+            int q = 0;
+            boolean found = false;
+            double ratio = Double.POSITIVE_INFINITY;
+            double pivot = 0.0;
+            for (int v=-2*this.rows;v<this.n;v++){
+                byte state = stateOf(v);
+                if (state == BASIC || upperOf(v) == 0.0 || held[order(v)]){
+                    continue;
+                }
+                double a = dot(rho, v);
+                boolean increase = state == LOWER ? a < -pivotTol : a > pivotTol;
+                boolean decrease = state == LOWER ? a > pivotTol : a < -pivotTol;
+                if (toLower ? !increase : !decrease){
+                    continue;
+                }
+                double d = costOf(v) - dot(this.y, v);
+                double t = Math.max(state == LOWER ? d : -d, 0.0) / Math.abs(a);
+                if (t < ratio - 1e-12 || (t <= ratio + 1e-12 && Math.abs(a) > Math.abs(pivot))){
+                    ratio = t;
+                    pivot = a;
+                    q = v;
+                    found = true;
+                }
+            }
+            if (!found){
+                return Status.INFEASIBLE;
+            }
+            ftran(q, alpha);
+            double delta = toLower ? this.xB[r] : this.xB[r] - upperOf(this.basis[r]);
+            double step = delta / alpha[r];
+            for (int i=0;i<this.rows;i++){
+                this.xB[i] -= step * alpha[i];
+            }
+            double entering = (stateOf(q) == LOWER ? 0.0 : upperOf(q)) + step;
+            setState(this.basis[r], toLower ? LOWER : UPPER);
+            this.basis[r] = q;
+            setState(q, BASIC);
+            this.xB[r] = entering;
+            pivot(r, alpha);
+        }
+    }
+}
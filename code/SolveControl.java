@@ -0,0 +1,124 @@
+package BnP_Framework;
+import java.util.ArrayList;
+import java.util.List;
+/*
+The class holds the limits, the cancellation and the listener of one solve, see class Solver
+    stopped() is checked by the workers before each node, by column generation after each pricing and by the labeling
+    algorithm before each bucket, so a solve stops soon after its time limit or cancel(), a node whose column
+    generation was interrupted is put back in the pool unchanged, so its bound still counts
+    node() is called for each branched node, it checks the node limit and the gap limit, the gap is the one between
+    the incumbent and the best bound of the open nodes, which counts the nodes other workers are optimizing, so the
+    gap of a solve stopped by the gap limit is at most the limit, the best bound is also reported to the listener each
+    time it rises
+    the incumbents are reported as they improve, an incumbent found by a worker after a better one is not reported, and
+    the listener is called by the worker that found it, so it should return quickly
+    message() gives a line of the log of the solve to the listener, the lines are dropped without a listener
+the default control has no limit, no listener and is never stopped
+*/
+public class SolveControl {
+    private volatile long start = System.nanoTime();
+    private final long timeLimit;   // nanoseconds
+    private final long nodeLimit;
+    private final double gapLimit;
+    private final Solver.Listener listener;
+    private volatile Solver.Status reason;  // why the solve was stopped, null while it runs
+    private long nodes;
+    private double reportedCost = Double.POSITIVE_INFINITY;
+    private double reportedBound = Double.NEGATIVE_INFINITY;
+
+    SolveControl(){
+        this(Double.POSITIVE_INFINITY, Long.MAX_VALUE, 0.0, null);
+    }
+
+    // a time limit in seconds, a node limit, a relative gap limit and a listener, which may be null
+    SolveControl(double timeLimit, long nodeLimit, double gapLimit, Solver.Listener listener){
+        this.timeLimit = timeLimit * 1e9 >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) (timeLimit * 1e9);
+        this.nodeLimit = nodeLimit;
+        this.gapLimit = gapLimit;
+        this.listener = listener;
+    }
+
+    // the time limit counts from now
+    void begin(){
+        this.start = System.nanoTime();
+    }
+
+    public double seconds(){
+        return (System.nanoTime() - this.start) / 1e9;
+    }
+
+    public boolean stopped(){
+        if (this.reason != null){
+            return true;
+        }
+        if (this.timeLimit < Long.MAX_VALUE && System.nanoTime() - this.start > this.timeLimit){
+            stop(Solver.Status.TIME_LIMIT);
+            return true;
+        }
+        return false;
+    }
+
+    // stop the solve, the first reason is kept
+    synchronized void stop(Solver.Status reason){
+        if (this.reason == null){
+            this.reason = reason;
+        }
+    }
+
+    // stop the solve from any thread, the workers stop at their next check
+    public void cancel(){
+        stop(Solver.Status.CANCELLED);
+    }
+
+    public Solver.Status reason(){
+        return this.reason;
+    }
+
+    // a node has been branched, its children are already in the pool
+    void node(UserParam user, NodePool unexplored){
+        synchronized (this){
+            if (++this.nodes >= this.nodeLimit){
+                stop(Solver.Status.NODE_LIMIT);
+            }
+        }
+        if (this.gapLimit <= 0 && this.listener == null){
+            return;
+        }
+        double upperBound = user.upperBound();
+        double bound = Math.min(unexplored.bestBound(), upperBound);
+        if (this.listener != null && !Double.isInfinite(bound)){
+            synchronized (this){
+                if (bound > this.reportedBound){
+                    this.reportedBound = bound;
+                    this.listener.bound(bound, seconds());
+                }
+            }
+        }
+        if (this.gapLimit > 0 && Telemetry.gap(bound, upperBound) <= this.gapLimit){
+            stop(Solver.Status.GAP_LIMIT);
+        }
+    }
+
+    // a line of the log
+    synchronized void message(String line){
+        if (this.listener != null){
+            this.listener.message(line);
+        }
+    }
+
+    // an improved incumbent
+    synchronized void incumbent(double cost, List<Route> routes){
+        if (this.listener != null && cost < this.reportedCost){
+            this.reportedCost = cost;
+            this.listener.incumbent(cost, paths(routes), seconds());
+        }
+    }
+
+    static List<int[]> paths(List<Route> routes){
+        List<int[]> paths = new ArrayList<int[]>();
+        for (Route route: routes){
+            paths.add(route.path.clone());
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,181 @@
+package BnP_Framework;
+import java.nio.file.Paths;
+import java.util.List;
+/*
+The class is the library entry of the solver, solve(instance, options) runs the branch-cut-and-price search on an
+    instance and returns the best solution found, with the bound and the status of the search, once the tree is
+    explored or a limit of the options is reached
+    the options set a time limit in seconds, a node limit and a relative gap limit, a listener called with every
+    improved incumbent and every rise of the best bound, and the trace and checkpoint files of classes Telemetry and
+    Checkpoint, the algorithm itself is still configured by the static parameters of UserParam
+    cancel() stops a running solve from another thread, the solve returns its best solution so far, see SolveControl
+    a stopped search keeps its open nodes in the checkpoint, so a later solve with the same checkpoint continues it
+the instance data belongs to the UserParam of each solve, so several solves can run at the same time on different
+    threads, as long as they don't share a trace or a checkpoint file and the static parameters of UserParam don't
+    change while they run, see class BatchSolver
+*/
+public class Solver {
+    // INCOMPLETE is a search that ended with open nodes although no limit stopped it, e.g. its thread was interrupted
+    public enum Status {OPTIMAL, INFEASIBLE, TIME_LIMIT, NODE_LIMIT, GAP_LIMIT, CANCELLED, INCOMPLETE}
+
+    // the callbacks of a solve, they are called by the worker that found the incumbent or the bound
+    public interface Listener {
+        default void incumbent(double cost, List<int[]> routes, double seconds){
+        }
+
+        default void bound(double bound, double seconds){
+        }
+
+        // a line of the log of the solve, the solutions found by the heuristics and the tree, the progress lines and
+        // the statistics of branching, the solver itself never prints, the lines are given one at a time
+        default void message(String line){
+        }
+    }
+
+    public static class Options {
+        double timeLimit = Double.POSITIVE_INFINITY;    // seconds
+        long nodeLimit = Long.MAX_VALUE;    // branched nodes
+        double gapLimit = 0.0;  // relative gap between the incumbent and the best bound, 0 proves optimality
+        Listener listener;
+        String traceFile = UserParam.traceFile;
+        String checkpointFile = UserParam.checkpointFile;
+
+        public Options timeLimit(double seconds){
+            this.timeLimit = seconds;
+            return this;
+        }
+
+        public Options nodeLimit(long nodes){
+            this.nodeLimit = nodes;
+            return this;
+        }
+
+        public Options gapLimit(double gap){
+            this.gapLimit = gap;
+            return this;
+        }
+
+        public Options listener(Listener listener){
+            this.listener = listener;
+            return this;
+        }
+
+        // the trace file of class Telemetry, null for none
+        public Options traceFile(String path){
+            this.traceFile = path;
+            return this;
+        }
+
+        // the checkpoint the solve resumes from and saves to, null for none
+        public Options checkpointFile(String path){
+            this.checkpointFile = path;
+            return this;
+        }
+    }
+
+    public static class Result {
+        public final Status status;
+        public final double objective;  // the cost of the best solution, infinity if none was found
+        public final List<int[]> routes;    // the paths of the routes of the best solution, null if none was found
+        public final double bound;  // lower bound of the optimal cost
+        public final double gap;    // relative gap between the objective and the bound, NaN if either is infinite
+        public final int nodes;     // the nodes branched by this solve
+        public final double seconds;
+
+        Result(Status status, double objective, List<int[]> routes, double bound, int nodes, double seconds){
+            this.status = status;
+            this.objective = objective;
+            this.routes = routes;
+            this.bound = bound;
+            this.gap = Telemetry.gap(bound, objective);
+            this.nodes = nodes;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString(){
+            return "Result{status=" + status + ", objective=" + objective + ", bound=" + bound + ", gap=" + gap +
+                    ", nodes=" + nodes + ", seconds=" + seconds + '}';
+        }
+    }
+
+    private final Instance instance;
+    private final Options options;
+    private final SolveControl control;
+
+    public Solver(Instance instance, Options options){
+        this.instance = instance;
+        this.options = options;
+        this.control = new SolveControl(options.timeLimit, options.nodeLimit, options.gapLimit, options.listener);
+    }
+
+    public static Result solve(Instance instance, Options options){
+        return new Solver(instance, options).solve();
+    }
+
+    public void cancel(){
+        this.control.cancel();
+    }
+
+    public Result solve(){
+        this.control.begin();
+        UserParam user = new UserParam(this.instance);
+        user.control = this.control;
+        NodePool unexplored = new NodePool(UserParam.nodeSelection);
+        Checkpoint checkpoint = this.options.checkpointFile == null ? null :
+                new Checkpoint(Paths.get(this.options.checkpointFile));
+        if (this.options.traceFile != null){
+            user.telemetry.open(Paths.get(this.options.traceFile));
+        }
+        int nodes;
+        try{
+            if (checkpoint != null && checkpoint.exists()){
+                //  resume the search of the checkpoint, its column pool already holds the routes {0,i}
+                int open = checkpoint.restore(user, unexplored);
+                user.control.message("Resumed from " + checkpoint.path + ": " + open + " open nodes, " +
+                        user.columnPool.size() + " routes, current best solution: " + user.upperBound());
+            }else{
+                //  initialize routes, we set each node has a unique routes, which is {0,i} for each customer i
+                //  they are added to the column pool, from which every node takes the routes it can use
+                for (int i = 1; i < user.nodeCount; i++){
+                    user.columnPool.add(new Route(new int[]{0, i}, user));
+                }
+                //  the routes of the savings heuristic are a first incumbent
+                if (UserParam.savings){
+                    PrimalHeuristic.savings(user);
+                }
+                unexplored.add(new BnbNode(user));
+            }
+            if (checkpoint != null){
+                checkpoint.start(user, unexplored);
+            }
+            try{
+                nodes = UserParam.deterministic ? Framework.exploreRounds(unexplored, user) :
+                        Framework.explore(unexplored, user);
+            }finally{
+                if (checkpoint != null){
+                    checkpoint.stop();
+                }
+            }
+        }finally{
+            user.telemetry.close();
+            user.pricing.shutdown();
+        }
+        if (UserParam.branchingRule == Branching.Rule.STRONG || UserParam.branchingRule == Branching.Rule.RELIABILITY){
+            user.control.message(user.branching.toString());
+        }
+//        the search is complete when no node is left, even if a limit was reached by the last node
+        List<Route> best = user.bestRoutes();
+        Status status;
+        double bound;
+        if (unexplored.size() == 0){
+            status = best == null ? Status.INFEASIBLE : Status.OPTIMAL;
+            bound = user.upperBound();
+        }else{
+            status = this.control.reason() == null ? Status.INCOMPLETE : this.control.reason();
+            bound = Math.min(unexplored.bestBound(), user.upperBound());
+        }
+        return new Result(status, user.upperBound(), best == null ? null : SolveControl.paths(best), bound, nodes,
+                this.control.seconds());
+    }
+}
@@ -0,0 +1,67 @@
+package BnP_Framework;
+import java.util.Arrays;
+/*
+The class stabilizes the duals of column generation, pricing is done at a separation point between the duals of the
+    master problem and a stability center instead of at the duals themselves, which oscillate from one iteration to
+    the next on the degenerate set-partitioning master
+    the center is the separation point with the best Lagrangian bound so far, the bound is only known after an
+    exact pricing, so the duals are not stabilized until the first exact pricing
+    SMOOTHING is the smoothing of Wentges, the point is alpha*center + (1-alpha)*pi with alpha = UserParam.smoothing
+    BOX keeps the point in a box around the center, the half width of the box of customer i is
+    UserParam.boxWidth*max(|center[i]|,1), the duals outside of the box are moved to its border
+a mis-pricing happens when pricing at the point finds no route with a negative reduced cost under the duals of the
+    master problem, each mis-pricing moves the next point towards the duals, alpha decreases by 1-UserParam.smoothing
+    and the box doubles its width, after at most maxMispricing mis-pricings the point is the duals, so a pricing
+    without new routes still proves that the master problem is optimal
+*/
+public class Stabilization {
+    enum Method {NONE, SMOOTHING, BOX}
+    static final int maxMispricing = 5;     // mis-pricings after which the box is dropped
+    double[] center;
+    double centerBound = Double.NEGATIVE_INFINITY;  // the Lagrangian bound of the center
+    int mispricing;     // mis-pricings since the master problem was last solved
+
+    // the separation point of the duals of the master problem, pi itself if there is nothing to stabilize
+    public double[] point(double[] pi){
+        if (UserParam.stabilization == Method.NONE || this.center == null){
+            return pi;
+        }
+        double[] point = new double[pi.length];
+        if (UserParam.stabilization == Method.SMOOTHING){
+            double alpha = 1 - (this.mispricing + 1) * (1 - UserParam.smoothing);
+            if (alpha < UserParam.tolerance){
+                return pi;
+            }
+            for (int i=0;i<pi.length;i++){
+                point[i] = alpha * this.center[i] + (1 - alpha) * pi[i];
+            }
+            return Arrays.equals(point, pi) ? pi : point;
+        }
+        if (this.mispricing >= maxMispricing){
+            return pi;
+        }
+        double width = UserParam.boxWidth * (1 << this.mispricing);
+        for (int i=0;i<pi.length;i++){
+            double radius = width * Math.max(Math.abs(this.center[i]), 1.0);
+            point[i] = Math.max(this.center[i] - radius, Math.min(this.center[i] + radius, pi[i]));
+        }
+        return Arrays.equals(point, pi) ? pi : point;
+    }
+
+    // move the center to the point if its Lagrangian bound is better
+    public void update(double[] point, double bound){
+        if (bound > this.centerBound){
+            this.center = point.clone();
+            this.centerBound = bound;
+        }
+    }
+
+    public void mispriced(){
+        this.mispricing++;
+    }
+
+    // the master problem has been solved with new routes
+    public void reset(){
+        this.mispricing = 0;
+    }
+}
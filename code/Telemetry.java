@@ -0,0 +1,274 @@
+package BnP_Framework;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Percentage;
+import jdk.jfr.Timespan;
+/*
+The class reports the progress of the search, node() is called by every worker for each node it has branched
+    the node is recorded as a NodeEvent of Java Flight Recorder, and each pricing stage as a PricingEvent, they cost
+    nothing when no recording is running, "java -XX:StartFlightRecording=filename=solve.jfr ..." records them
+    with open(path) a line is also written to the trace file for each node, as JSON lines if the file ends with .jsonl
+    and as CSV otherwise, the columns are those of 'columns', the times are in milliseconds, and a bound that is
+    infinite is left empty (null in JSON)
+    the NodeEvent of a node is begun by begin() when a worker takes it from the pool, the nodes of the dives and the
+    children evaluated by strong branching are not reported, so they have none
+    every UserParam.progressInterval seconds a progress line with the explored and open nodes, the best bound, the
+    incumbent and the gap is given to the log of the solve, see SolveControl.message(), the best bound is the lowest
+    lower bound of the open nodes, including the ones the workers are optimizing
+the status of a node is "infeasible", "pruned" if column generation stopped at the incumbent, "integer" if its solution
+    is integer, "branched" if its children were added and "bounded" if its bound reached the incumbent after column
+    generation, its gap is the relative gap between its lower bound and the incumbent
+*/
+public class Telemetry {
+    static final String[] columns = {"sequence", "depth", "status", "iterations", "masterSolves", "masterMs",
+            "pricingCalls", "pricingMs", "labelsExtended", "labelsCreated", "labelsDominated", "columnsAdded",
+            "cutsAdded", "objVal", "lowerBound", "upperBound", "gap", "nodeMs", "elapsedMs"};
+    private final long start = System.nanoTime();
+    private long lastProgress = this.start;
+    private long nodes;     // the nodes reported
+    private Writer trace;
+    private boolean json;
+
+    @Name("BnP_Framework.Node")
+    @Label("Branch and Bound Node")
+    @Category("Branch and Price")
+    @Description("The optimization of a node, from the start of its column generation to its branching")
+    static class NodeEvent extends Event {
+        @Label("Sequence")
+        long sequence;
+        @Label("Depth")
+        int depth;
+        @Label("Status")
+        String status;
+        @Label("Iterations")
+        int iterations;
+        @Label("Master Solves")
+        int masterSolves;
+        @Label("Master Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long masterTime;
+        @Label("Pricing Calls")
+        int pricingCalls;
+        @Label("Pricing Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long pricingTime;
+        @Label("Labels Extended")
+        long labelsExtended;
+        @Label("Labels Created")
+        long labelsCreated;
+        @Label("Labels Dominated")
+        long labelsDominated;
+        @Label("Columns Added")
+        int columnsAdded;
+        @Label("Cuts Added")
+        int cutsAdded;
+        @Label("Lower Bound")
+        double lowerBound;
+        @Label("Upper Bound")
+        double upperBound;
+        @Label("Gap")
+        @Percentage
+        double gap;
+    }
+
+    @Name("BnP_Framework.Pricing")
+    @Label("Pricing Stage")
+    @Category("Branch and Price")
+    @Description("One stage of the pricing of a node, the heuristics, the labeling on the reduced graph or the exact labeling")
+    static class PricingEvent extends Event {
+        @Label("Node Sequence")
+        long sequence;
+        @Label("Depth")
+        int depth;
+        @Label("Stage")
+        String stage;
+        @Label("Routes Found")
+        int routesFound;
+        @Label("Columns Added")
+        int columnsAdded;
+        @Label("Labels Extended")
+        long labelsExtended;
+        @Label("Labels Created")
+        long labelsCreated;
+        @Label("Labels Dominated")
+        long labelsDominated;
+    }
+
+    // commit the event of a pricing stage of the node, 'labeling' is null for the heuristics
+    static void pricing(PricingEvent event, BnbNode node, String stage, Labeling labeling, int found, int added){
+        if (!event.shouldCommit()){
+            return;
+        }
+        event.sequence = node.sequence;
+        event.depth = node.depth;
+        event.stage = stage;
+        event.routesFound = found;
+        event.columnsAdded = added;
+        if (labeling != null){
+            event.labelsExtended = labeling.labelsExtended;
+            event.labelsCreated = labeling.labelsCreated;
+            event.labelsDominated = labeling.labelsDominated;
+        }
+        event.commit();
+    }
+
+    // write the trace of the nodes to the file, a file that can't be written is an error
+    public synchronized void open(Path path){
+        try{
+            this.trace = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            this.json = path.toString().endsWith(".jsonl");
+            if (!this.json){
+                this.trace.write(String.join(",", columns));
+                this.trace.write('\n');
+            }
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write trace " + path, e);
+        }
+    }
+
+    public synchronized void close(){
+        if (this.trace == null){
+            return;
+        }
+        try{
+            this.trace.close();
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write trace", e);
+        }finally{
+            this.trace = null;
+        }
+    }
+
+    // start the event of a node of the tree, before its column generation
+    public void begin(BnbNode node){
+        NodeEvent event = new NodeEvent();
+        event.begin();
+        node.statistics.event = event;
+    }
+
+    // report a node after it is branched and before it is released, its children are already in the pool
+    public void node(BnbNode node, UserParam user, NodePool unexplored){
+        NodeStatistics statistics = node.statistics;
+        long nanos = statistics.elapsedNanos();
+        double upperBound = user.upperBound();
+        String status = status(node, upperBound);
+        double gap = gap(node.lowerBound, upperBound);
+        NodeEvent event = statistics.event;
+        if (event != null && event.shouldCommit()){
+            event.sequence = node.sequence;
+            event.depth = node.depth;
+            event.status = status;
+            event.iterations = statistics.iterations;
+            event.masterSolves = statistics.masterSolves;
+            event.masterTime = statistics.masterNanos;
+            event.pricingCalls = statistics.pricingCalls;
+            event.pricingTime = statistics.pricingNanos;
+            event.labelsExtended = statistics.labelsExtended;
+            event.labelsCreated = statistics.labelsCreated;
+            event.labelsDominated = statistics.labelsDominated;
+            event.columnsAdded = statistics.columnsAdded;
+            event.cutsAdded = statistics.cutsAdded;
+            event.lowerBound = node.lowerBound;
+            event.upperBound = upperBound;
+            event.gap = gap;
+            event.commit();
+        }
+        synchronized (this){
+            this.nodes++;
+            long now = System.nanoTime();
+            if (this.trace != null){
+                String[] values = {Long.toString(node.sequence), Integer.toString(node.depth), status,
+                        Integer.toString(statistics.iterations), Integer.toString(statistics.masterSolves),
+                        millis(statistics.masterNanos), Integer.toString(statistics.pricingCalls),
+                        millis(statistics.pricingNanos), Long.toString(statistics.labelsExtended),
+                        Long.toString(statistics.labelsCreated), Long.toString(statistics.labelsDominated),
+                        Integer.toString(statistics.columnsAdded), Integer.toString(statistics.cutsAdded),
+                        number(node.objVal), number(node.lowerBound), number(upperBound), number(gap), millis(nanos),
+                        millis(now - this.start)};
+                write(values);
+            }
+            if (UserParam.progressInterval > 0 && now - this.lastProgress >= UserParam.progressInterval * 1e9){
+                this.lastProgress = now;
+                progress(user, unexplored, upperBound, now);
+            }
+        }
+    }
+
+    private static String status(BnbNode node, double upperBound){
+        if (!node.feasible){
+            return "infeasible";
+        }else if (node.pruned){
+            return "pruned";
+        }else if (node.fractionArc.isEmpty()){
+            return "integer";
+        }
+        return node.lowerBound < upperBound - UserParam.tolerance ? "branched" : "bounded";
+    }
+
+    // the relative gap between a lower bound and the incumbent, NaN while either is infinite
+    static double gap(double lowerBound, double upperBound){
+        if (Double.isInfinite(lowerBound) || Double.isInfinite(upperBound)){
+            return Double.NaN;
+        }
+        return Math.max(upperBound - lowerBound, 0.0) / Math.max(Math.abs(upperBound), UserParam.tolerance);
+    }
+
+    private void write(String[] values){
+        StringBuilder line = new StringBuilder();
+        for (int c=0;c<values.length;c++){
+            if (!this.json){
+                line.append(c > 0 ? "," : "").append(values[c]);
+                continue;
+            }
+            line.append(c > 0 ? ",\"" : "{\"").append(columns[c]).append("\":");
+            if (columns[c].equals("status")){
+                line.append('"').append(values[c]).append('"');
+            }else{
+                line.append(values[c].isEmpty() ? "null" : values[c]);
+            }
+        }
+        line.append(this.json ? "}\n" : "\n");
+        try{
+            this.trace.write(line.toString());
+        }catch (IOException e){
+            throw new UncheckedIOException("can't write trace", e);
+        }
+    }
+
+    private void progress(UserParam user, NodePool unexplored, double upperBound, long now){
+        double bound = Math.min(unexplored.bestBound(), upperBound);
+        user.control.message(String.format(Locale.ROOT, "progress: %d nodes, %d open, best bound %s, incumbent %s, " +
+                        "gap %s, %.1fs", this.nodes, unexplored.size(), format(bound), format(upperBound),
+                Double.isNaN(gap(bound, upperBound)) ? "-" : String.format(Locale.ROOT, "%.2f%%",
+                        100 * gap(bound, upperBound)), (now - this.start) / 1e9));
+        if (this.trace != null){
+            try{
+                this.trace.flush();
+            }catch (IOException e){
+                throw new UncheckedIOException("can't write trace", e);
+            }
+        }
+    }
+
+    private static String millis(long nanos){
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static String number(double value){
+        return Double.isInfinite(value) || Double.isNaN(value) ? "" : Double.toString(value);
+    }
+
+    private static String format(double value){
+        return Double.isInfinite(value) ? "-" : String.format(Locale.ROOT, "%.2f", value);
+    }
+}
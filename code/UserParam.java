@@ -1,61 +1,195 @@
 package BnP_Framework;
-import net.sf.json.JSONArray;
-import net.sf.json.JSONObject;
-
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
-the class generator parse a .json file and store the parameters of the model, includes arcs,
-    edge costs, demand, vehicle capacity, vertex number, algorithm tolerance(labeling)
-the class instance records the global value of the algorithm, which includes lower(upper) bound, solution routes
+the static fields of the class are the parameters of the algorithm, algorithm tolerance(labeling), the pricing, the
+    cuts, the branching and the search, they are shared by every solve of the JVM, the solves running at the same time
+    must use the same values, parameters() lists them so class BatchSolver can check that they don't change during a
+    batch, traceFile and checkpointFile are only the defaults of Solver.Options, which set them per solve
+the class instance is one solve, the generator loads an instance file by class Instance and store the parameters of
+    the model, includes arcs, edge costs, demand, vehicle capacity, vertex number, so several solves of different
+    instances can run at the same time, every class that needs the instance is given the UserParam of its solve
+    costs and demands are stored densely and indexed by vertex, cost[i][j] is the cost of arc (i,j),
+    which is infinity when the arc does not exist, the arcs are the pairs of a finite cost, and successors[i] lists
+    the heads of the arcs leaving i
+the class instance also records the global value of the algorithm, which includes lower(upper) bound, solution routes,
+    the column pool and the cut pool shared by all nodes, the pseudo-costs of branching, the pricing threads and the
+    telemetry of the search
+    the upper bound and its routes are published together as one immutable Incumbent, so the workers of the parallel
+    search always read a consistent pair, and an improvement is applied with a compare-and-set instead of a lock
+    the improvements are also recorded by the checkpoint of the search, see class Checkpoint
 */
 public class UserParam {
-    static List<List<Integer>> arcs = new ArrayList<List<Integer>>();
-    static Map<List<Integer>, Double> cost = new HashMap<List<Integer>, Double>();
-    static Map<Integer, Double> demand = new HashMap<Integer, Double>();
-    static double capacity;
-    static int nodeCount;
     static double tolerance = 1e-4;
-    double upperBound;
-    List<Route> bestRoutes;
+    static boolean bidirectional = false;   // labeling with forward and backward labels joined at half capacity
+    static int ngSize = 0;  // size of the ng-route neighbourhoods, 0 keeps the 2-cycle elimination
+    static boolean elementary = false;  // labeling only generates elementary routes
+    static boolean heuristicPricing = true;     // try the pricing heuristics before labeling
+    static int pricingArcs = 5;     // arcs kept per vertex by the heuristic labeling, 0 skips it
+    static Stabilization.Method stabilization = Stabilization.Method.NONE;  // dual stabilization of pricing
+    static double smoothing = 0.8;  // weight of the stability center in the smoothed duals
+    static double boxWidth = 0.1;   // half width of the box around the stability center, relative to the center
+    static boolean arcFixing = true;    // remove the arcs whose reduced cost shows they can't improve the incumbent
+    static int cutRounds = 10;  // rounds of capacity cut separation per node, 0 is branch and price without cuts
+    static int cutsPerRound = 20;   // the most violated cuts added in each round
+    static Branching.Rule branchingRule = Branching.Rule.MOST_FRACTIONAL;   // how the arc to branch on is chosen
+    static int strongCandidates = 5;    // arcs evaluated by strong branching at each node
+    static int strongIterations = 5;    // column generation iterations of each child evaluated by strong branching
+    static int reliability = 4;     // branchings after which the pseudo-costs of an arc are trusted
+    static int heuristicFrequency = 10;     // nodes between two runs of the primal heuristics, 0 never runs them
+    static boolean diving = true;   // the primal heuristics also dive from the node
+    static boolean savings = true;  // the savings heuristic seeds the column pool and the incumbent
+    static int threads = 1;     // number of workers exploring the branching tree
+    static int pricingThreads = 1;  // number of threads of one pricing, shared by the workers of the tree of a solve
+    static boolean deterministic = false;   // parallel search explores the nodes in reproducible rounds
+    static int poolSize = 50000;    // the column pool evicts inactive routes when it holds more routes
+    static NodePool.Selection nodeSelection = NodePool.Selection.BREADTH_FIRST;    // order of node exploration
+    static MasterProblem.Backend lpSolver = MasterProblem.Backend.GUROBI;   // LP solver of the master problem, SIMPLEX if Gurobi isn't built
+    static String traceFile = null;     // the trace of the explored nodes, .csv or .jsonl, null writes no trace
+    static double progressInterval = 10;    // seconds between two progress lines of the log, 0 gives none
+    static String checkpointFile = null;    // the checkpoint the search resumes from and saves to, null saves none
+    static double checkpointInterval = 5;   // seconds between two writes of the checkpoint
+    final List<List<Integer>> arcs = new ArrayList<List<Integer>>();
+    final double[][] cost;
+    final double[] demand;
+    final int[][] successors;
+    final double capacity;
+    final int nodeCount;
+    AtomicReference<Incumbent> incumbent = new AtomicReference<Incumbent>();
+    ColumnPool columnPool = new ColumnPool();
+    CutPool cutPool = new CutPool();
+    Branching branching = new Branching();
+    Telemetry telemetry = new Telemetry();
+    Checkpoint checkpoint;  // the checkpoint that records the improved incumbents, null if none is saved
+    SolveControl control = new SolveControl();  // the limits and the listener of the solve, see class Solver
+    final PricingWorkers pricing = new PricingWorkers(pricingThreads);  // the pricing threads of the solve
 
+    // load the instance file, .json, .vrp or .bin, a file that can't be loaded is an error, see class Instance
     UserParam(String filePath){
-        Path path = Paths.get(filePath);
-        String jsonString = "";
-        try{
-            jsonString = new String(Files.readAllBytes(path));
-        }catch (IOException e) {
-            System.out.println("no such files");
-        }
-        JSONObject data = JSONObject.fromObject(jsonString);
-        // parse demand
-        String key;
-        double value;
-        JSONObject jsonObject = data.getJSONObject("demand");
-        Iterator<String> keys = jsonObject.keys();
-        while (keys.hasNext()){
-            key = keys.next();
-            value = Double.parseDouble(jsonObject.get(key).toString());
-            demand.put(Integer.parseInt(key), value);
-        }
-        // parse arcs and costs
-        JSONArray arcsArray = data.getJSONArray("arcs");
-        JSONArray arcsCost = data.getJSONArray("cost");
-        for (int i =0;i<arcsArray.size();i++){
-            JSONArray tempArray = JSONArray.fromObject(arcsArray.get(i));
-            List<Integer> arc = Arrays.asList(tempArray.getInt(0), tempArray.getInt(1));
-            arcs.add(arc);
-            cost.put(arc, arcsCost.getDouble(i));
-        }
-        // parse capacity
-        capacity = Double.parseDouble(data.get("capacity").toString());
-        nodeCount = demand.size()+1;
+        this(Instance.read(Paths.get(filePath)));
+    }
+
+    // the instance already loaded, or built by InstanceGenerator
+    UserParam(Instance instance){
+        nodeCount = instance.nodeCount;
+        demand = instance.demand;
+        cost = instance.cost;
+        capacity = instance.capacity;
+        for (int i=0;i<nodeCount;i++){
+            for (int j=0;j<nodeCount;j++){
+                if (cost[i][j] < Double.POSITIVE_INFINITY){
+                    arcs.add(Arrays.asList(i, j));
+                }
+            }
+        }
+        successors = successors(arcs);
         // initialize bound
-        upperBound = Double.POSITIVE_INFINITY;
+        incumbent.set(new Incumbent(Double.POSITIVE_INFINITY, null));
+    }
+
+    // the static parameters and their values, "name=value" in the order of declaration, without the files set per solve
+    static String parameters(){
+        StringJoiner values = new StringJoiner(", ");
+        for (Field field: UserParam.class.getDeclaredFields()){
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic() ||
+                    field.getName().equals("traceFile") || field.getName().equals("checkpointFile")){
+                continue;
+            }
+            try{
+                values.add(field.getName() + "=" + field.get(null));
+            }catch (IllegalAccessException e){
+                throw new IllegalStateException("can't read parameter " + field.getName(), e);
+            }
+        }
+        return values.toString();
+    }
+
+    static class Incumbent {
+        final double upperBound;
+        final List<Route> bestRoutes;
+
+        Incumbent(double upperBound, List<Route> bestRoutes){
+            this.upperBound = upperBound;
+            this.bestRoutes = bestRoutes;
+        }
+    }
+
+    double upperBound(){
+        return incumbent.get().upperBound;
+    }
+
+    List<Route> bestRoutes(){
+        return incumbent.get().bestRoutes;
+    }
+
+    // replace the incumbent if the solution is better, return true if it has been replaced
+    boolean updateIncumbent(double objVal, List<Route> routes){
+        Incumbent update = new Incumbent(objVal, routes);
+        while (true){
+            Incumbent current = incumbent.get();
+            if (objVal >= current.upperBound){
+                return false;
+            }
+            if (incumbent.compareAndSet(current, update)){
+                Checkpoint checkpoint = this.checkpoint;
+                if (checkpoint != null){
+                    checkpoint.incumbent(objVal, routes);
+                }
+                this.control.incumbent(objVal, routes);
+                return true;
+            }
+        }
+    }
+
+    // the bitset of the ids i*nodeCount+j of a set of arcs
+    long[] arcSet(List<List<Integer>> arcs){
+        long[] set = new long[(nodeCount * nodeCount + 63) / 64];
+        for (List<Integer> arc: arcs){
+            int id = arc.get(0) * nodeCount + arc.get(1);
+            set[id >>> 6] |= 1L << id;
+        }
+        return set;
+    }
+
+    // the successor array of each vertex from a bitset of arc ids
+    int[][] successors(long[] arcs){
+        int[][] successors = new int[nodeCount][];
+        int[] heads = new int[nodeCount];
+        for (int i=0;i<nodeCount;i++){
+            int degree = 0;
+            for (int j=0;j<nodeCount;j++){
+                int id = i * nodeCount + j;
+                if ((arcs[id >>> 6] & (1L << id)) != 0){
+                    heads[degree++] = j;
+                }
+            }
+            successors[i] = Arrays.copyOf(heads, degree);
+        }
+        return successors;
+    }
+
+    // build the successor array of each vertex from a set of arcs, so the labeling algorithm can scan
+    // the arcs leaving a vertex without filtering the whole arc list
+    int[][] successors(List<List<Integer>> arcs){
+        int[] degree = new int[nodeCount];
+        for (List<Integer> arc: arcs){
+            degree[arc.get(0)]++;
+        }
+        int[][] successors = new int[nodeCount][];
+        for (int i=0;i<nodeCount;i++){
+            successors[i] = new int[degree[i]];
+            degree[i] = 0;
+        }
+        for (List<Integer> arc: arcs){
+            int start = arc.get(0);
+            successors[start][degree[start]++] = arc.get(1);
+        }
+        return successors;
     }
 
 }
@@ -0,0 +1,186 @@
+package BnP_Framework;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+The tests write checkpoints of searches on generated instances and read them back, the frames of the file must
+    survive a tail that is cut short or corrupted, restore() must rebuild the open nodes with the arcs they had, and a
+    solve resumed from a stopped or killed run must reach the optimum without exploring a closed node again
+*/
+class CheckpointTest {
+    @TempDir
+    Path directory;
+
+    // a solve that starts like Solver.solve(), with the routes {0,i} and the savings routes in the column pool
+    static UserParam user(Instance instance){
+        UserParam user = new UserParam(instance);
+        for (int i=1;i<user.nodeCount;i++){
+            user.columnPool.add(new Route(new int[]{0, i}, user));
+        }
+        PrimalHeuristic.savings(user);
+        return user;
+    }
+
+    static NodePool root(UserParam user){
+        NodePool unexplored = new NodePool(UserParam.nodeSelection);
+        unexplored.add(new BnbNode(user));
+        return unexplored;
+    }
+
+    @Test
+    void framesAndTruncatedTail() throws IOException{
+        Instance instance = InstanceGenerator.generate(10, 1);
+        UserParam user = user(instance);
+        Path path = this.directory.resolve("frames.ckpt");
+        Checkpoint checkpoint = new Checkpoint(path);
+        checkpoint.start(user, root(user));
+        long snapshot = Files.size(path);
+        int routes = user.columnPool.size();
+//        a second frame with a route and a cut
+        user.columnPool.add(new Route(new int[]{0, 1, 2, 3}, user));
+        user.cutPool.add(Arrays.asList(new Cut(new int[]{1, 2, 3, 4}, user)));
+        checkpoint.stop();
+        byte[] bytes = Files.readAllBytes(path);
+        assertTrue(bytes.length > snapshot + 8);
+
+        UserParam restored = new UserParam(instance);
+        assertEquals(1, new Checkpoint(path).restore(restored, new NodePool(UserParam.nodeSelection)));
+        assertEquals(routes + 1, restored.columnPool.size());
+        assertEquals(1, restored.cutPool.size());
+        assertEquals(user.upperBound(), restored.upperBound());
+
+//        a run killed while writing the second frame leaves only the snapshot
+        for (long cut: new long[]{snapshot + 3, snapshot + 8, bytes.length - 1}){
+            Path truncated = this.directory.resolve("truncated-" + cut + ".ckpt");
+            Files.write(truncated, Arrays.copyOf(bytes, (int) cut));
+            restored = new UserParam(instance);
+            assertEquals(1, new Checkpoint(truncated).restore(restored, new NodePool(UserParam.nodeSelection)));
+            assertEquals(routes, restored.columnPool.size());
+            assertEquals(0, restored.cutPool.size());
+        }
+//        a record of the last frame that doesn't match its CRC drops the frame
+        byte[] corrupted = bytes.clone();
+        corrupted[corrupted.length - 2] ^= 0x10;
+        Path crc = this.directory.resolve("crc.ckpt");
+        Files.write(crc, corrupted);
+        restored = new UserParam(instance);
+        new Checkpoint(crc).restore(restored, new NodePool(UserParam.nodeSelection));
+        assertEquals(routes, restored.columnPool.size());
+//        the start of a frame that was never completed is ignored
+        Path partial = this.directory.resolve("partial.ckpt");
+        Files.write(partial, bytes);
+        Files.write(partial, new byte[]{0, 0, 1, 0, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        restored = new UserParam(instance);
+        new Checkpoint(partial).restore(restored, new NodePool(UserParam.nodeSelection));
+        assertEquals(routes + 1, restored.columnPool.size());
+        assertEquals(1, restored.cutPool.size());
+    }
+
+    @Test
+    void otherInstanceAndOtherFile() throws IOException{
+        Instance instance = InstanceGenerator.generate(10, 1);
+        UserParam user = user(instance);
+        Path path = this.directory.resolve("instance.ckpt");
+        Checkpoint checkpoint = new Checkpoint(path);
+        checkpoint.start(user, root(user));
+        checkpoint.stop();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new Checkpoint(path).
+                restore(new UserParam(InstanceGenerator.generate(10, 2)), new NodePool(UserParam.nodeSelection)));
+        assertTrue(e.getMessage().contains("another instance"), e.getMessage());
+        Path other = this.directory.resolve("other.ckpt");
+        Files.write(other, "not a checkpoint at all, just some text".getBytes());
+        assertThrows(IllegalArgumentException.class, () -> new Checkpoint(other).restore(new UserParam(instance),
+                new NodePool(UserParam.nodeSelection)));
+    }
+
+    @Test
+    void restoreRebuildsTheOpenNodes(){
+        Instance instance = InstanceGenerator.generate(25, 6);
+        UserParam user = user(instance);
+        NodePool unexplored = root(user);
+        Path path = this.directory.resolve("tree.ckpt");
+        Checkpoint checkpoint = new Checkpoint(path);
+        checkpoint.start(user, unexplored);
+        user.control = new SolveControl(Double.POSITIVE_INFINITY, 15, 0.0, null);
+        Framework.explore(unexplored, user);
+        checkpoint.stop();
+        Map<Long, BnbNode> open = new HashMap<Long, BnbNode>();
+        for (BnbNode node: unexplored.nodes()){
+            if (node.lowerBound < user.upperBound() - UserParam.tolerance){
+                open.put(node.sequence, node);
+            }
+        }
+        assertTrue(open.size() > 1, "the search ended before the node limit");
+
+        UserParam resumed = new UserParam(instance);
+        NodePool restored = new NodePool(UserParam.nodeSelection);
+        assertEquals(open.size(), new Checkpoint(path).restore(resumed, restored));
+        assertEquals(user.upperBound(), resumed.upperBound());
+        assertEquals(user.cutPool.size(), resumed.cutPool.size());
+        assertEquals(ids(user.columnPool.routes()), ids(resumed.columnPool.routes()));
+        for (BnbNode node: restored.nodes()){
+            BnbNode original = open.get(node.sequence);
+            assertNotNull(original, "node " + node.sequence + " wasn't open");
+//            the branching decisions and the arcs fixed in the ancestors give the same arcs
+            assertArrayEquals(original.arcs(), node.arcs(), "arcs of node " + node.sequence);
+            assertEquals(original.depth, node.depth);
+            assertEquals(original.lowerBound, node.lowerBound);
+            assertEquals(original.branchArc, node.branchArc);
+            assertEquals(original.enforced, node.enforced);
+        }
+    }
+
+    @Test
+    void resumeAfterStopAndKill() throws IOException{
+        Instance instance = InstanceGenerator.generate(25, 6);
+        Solver.Result full = Solver.solve(instance, new Solver.Options());
+        assertEquals(Solver.Status.OPTIMAL, full.status);
+
+        Path path = this.directory.resolve("solve.ckpt");
+        Path first = this.directory.resolve("first.csv");
+        Solver.Result stopped = Solver.solve(instance, new Solver.Options().nodeLimit(20).
+                checkpointFile(path.toString()).traceFile(first.toString()));
+        assertEquals(Solver.Status.NODE_LIMIT, stopped.status);
+//        a kill in the middle of a later write leaves the start of a frame at the end of the file
+        Files.write(path, new byte[]{0, 0, 4, 0, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+        Path second = this.directory.resolve("second.csv");
+        Solver.Result resumed = Solver.solve(instance, new Solver.Options().checkpointFile(path.toString()).
+                traceFile(second.toString()));
+        assertEquals(Solver.Status.OPTIMAL, resumed.status);
+        assertEquals(full.objective, resumed.objective, 1e-6);
+
+        Set<Long> closed = sequences(first);
+        Set<Long> explored = sequences(second);
+        assertEquals(20, closed.size());
+        assertFalse(explored.isEmpty());
+        explored.retainAll(closed);
+        assertTrue(explored.isEmpty(), "closed nodes explored again: " + explored);
+    }
+
+    static Set<Integer> ids(List<Route> routes){
+        return routes.stream().map(route -> route.id).collect(Collectors.toSet());
+    }
+
+    // the sequences of the nodes of a trace file
+    static Set<Long> sequences(Path trace) throws IOException{
+        Set<Long> sequences = new HashSet<Long>();
+        List<String> lines = Files.readAllLines(trace);
+        for (String line: lines.subList(1, lines.size())){
+            sequences.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,151 @@
+package BnP_Framework;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+The tests read instances in the three formats of class Instance, the bundled and generated .json instances are
+    converted to .bin and read back, the CVRPLIB fixture in test/data has its depot on the second vertex, and each
+    malformed file must fail with an IllegalArgumentException that names the file
+*/
+class InstanceTest {
+    static final double inf = Double.POSITIVE_INFINITY;
+
+    @TempDir
+    Path directory;
+
+    static void assertSame(Instance expected, Instance actual){
+        assertEquals(expected.nodeCount, actual.nodeCount);
+        assertEquals(expected.capacity, actual.capacity);
+        assertArrayEquals(expected.demand, actual.demand);
+        for (int i=0;i<expected.nodeCount;i++){
+            assertArrayEquals(expected.cost[i], actual.cost[i], "row " + i);
+        }
+    }
+
+    Path write(String name, String content) throws IOException{
+        Path path = this.directory.resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    void assertMalformed(Path path){
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Instance.read(path));
+        assertTrue(e.getMessage().contains(path.getFileName().toString()), e.getMessage());
+    }
+
+    @Test
+    void bundledJsonBinaryRoundTrip(){
+        Instance json = Instance.read(Paths.get("..", "instance", "vrp_bp_10.json"));
+        assertEquals(11, json.nodeCount);
+        Path bin = this.directory.resolve("vrp_bp_10.bin");
+        json.writeBinary(bin);
+        assertEquals(Instance.HEADER + 8L * 11 * 12, bin.toFile().length());
+        assertSame(json, Instance.read(bin));
+    }
+
+    @Test
+    void generatedJsonBinaryRoundTrip(){
+        Instance generated = InstanceGenerator.generate(30, 5);
+        Path json = this.directory.resolve("g30.json");
+        InstanceGenerator.writeJson(generated, json);
+        Instance read = Instance.read(json);
+        assertSame(generated, read);
+        Path bin = this.directory.resolve("g30.bin");
+        read.writeBinary(bin);
+        assertSame(generated, Instance.read(bin));
+    }
+
+    @Test
+    void cvrplibFixture(){
+        Instance instance = Instance.read(Paths.get("test", "data", "E-n4-d2.vrp"));
+        assertEquals(4, instance.nodeCount);
+        assertEquals(50.0, instance.capacity);
+//        the depot, vertex 2 of the file, becomes vertex 0, and the customers 1, 3 and 4 become 1, 2 and 3
+        assertArrayEquals(new double[]{0, 10, 20, 30}, instance.demand);
+        double[][] cost = {{inf, 5, 5, 3}, {5, inf, 10, 4}, {5, 10, inf, 7}, {3, 4, 7, inf}};
+        for (int i=0;i<4;i++){
+            assertArrayEquals(cost[i], instance.cost[i], "row " + i);
+        }
+    }
+
+    @Test
+    void explicitLowerRow() throws IOException{
+        Path path = write("explicit.vrp", "TYPE : CVRP\nDIMENSION : 3\nEDGE_WEIGHT_TYPE : EXPLICIT\n" +
+                "EDGE_WEIGHT_FORMAT : LOWER_ROW\nCAPACITY : 10\nEDGE_WEIGHT_SECTION\n1\n2 3\nDEMAND_SECTION\n" +
+                "1 0\n2 4\n3 5\nDEPOT_SECTION\n1\n-1\nEOF\n");
+        Instance instance = Instance.read(path);
+        double[][] cost = {{inf, 1, 2}, {1, inf, 3}, {2, 3, inf}};
+        for (int i=0;i<3;i++){
+            assertArrayEquals(cost[i], instance.cost[i], "row " + i);
+        }
+        assertArrayEquals(new double[]{0, 4, 5}, instance.demand);
+    }
+
+    @Test
+    void malformedJson() throws IOException{
+        String demand = "\"demand\": {\"1\": 5, \"2\": 7}, \"capacity\": 10";
+        assertMalformed(write("no-arcs.json", "{" + demand + ", \"cost\": []}"));
+        assertMalformed(write("count.json", "{" + demand + ", \"arcs\": [[0, 1], [1, 2]], \"cost\": [3]}"));
+        assertMalformed(write("truncated.json", "{" + demand + ", \"arcs\": [[0, 1], [1, 2]], \"cost\": [3, "));
+        assertMalformed(write("range.json", "{" + demand + ", \"arcs\": [[0, 3]], \"cost\": [3]}"));
+        assertMalformed(write("customer.json", "{\"demand\": {\"a\": 5}, \"capacity\": 10, \"arcs\": [], \"cost\": []}"));
+        assertMalformed(write("capacity.json", "{\"demand\": {\"1\": 5}, \"arcs\": [], \"cost\": []}"));
+        assertMalformed(write("number.json", "{" + demand + ", \"arcs\": [[0, 1.5]], \"cost\": [3]}"));
+        assertMalformed(write("empty.json", ""));
+    }
+
+    @Test
+    void malformedVrp() throws IOException{
+        String header = "TYPE : CVRP\nDIMENSION : 3\nEDGE_WEIGHT_TYPE : EUC_2D\nCAPACITY : 10\n";
+        String coordinates = "NODE_COORD_SECTION\n1 0 0\n2 1 1\n3 2 2\n";
+        assertMalformed(write("demand.vrp", header + coordinates + "EOF\n"));
+        assertMalformed(write("coordinates.vrp", header + "DEMAND_SECTION\n1 0\n2 1\n3 1\nEOF\n"));
+        assertMalformed(write("entry.vrp", header + coordinates + "DEMAND_SECTION\n1 0\n2 x\n3 1\nEOF\n"));
+        assertMalformed(write("vertex.vrp", header + coordinates + "DEMAND_SECTION\n1 0\n2 1\n4 1\nEOF\n"));
+        assertMalformed(write("depots.vrp", header + coordinates + "DEMAND_SECTION\n1 0\n2 1\n3 1\n" +
+                "DEPOT_SECTION\n1\n2\n-1\nEOF\n"));
+        assertMalformed(write("dimension.vrp", "TYPE : CVRP\nCAPACITY : 10\n" + coordinates));
+        assertMalformed(write("type.vrp", "TYPE : TSP\n" + header.substring(header.indexOf('\n') + 1)));
+        assertMalformed(write("weights.vrp", "TYPE : CVRP\nDIMENSION : 3\nEDGE_WEIGHT_TYPE : EXPLICIT\n" +
+                "EDGE_WEIGHT_FORMAT : LOWER_ROW\nCAPACITY : 10\nEDGE_WEIGHT_SECTION\n1 2\n" +
+                "DEMAND_SECTION\n1 0\n2 1\n3 1\nEOF\n"));
+    }
+
+    @Test
+    void malformedBinary() throws IOException{
+        Path bin = this.directory.resolve("valid.bin");
+        InstanceGenerator.generate(4, 1).writeBinary(bin);
+        byte[] bytes = Files.readAllBytes(bin);
+        Path header = this.directory.resolve("header.bin");
+        Files.write(header, Arrays.copyOf(bytes, 8));
+        assertMalformed(header);
+        Path truncated = this.directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 8));
+        assertMalformed(truncated);
+        byte[] magic = bytes.clone();
+        magic[0] ^= 1;
+        Path wrong = this.directory.resolve("magic.bin");
+        Files.write(wrong, magic);
+        assertMalformed(wrong);
+        byte[] version = bytes.clone();
+        version[7] = 9;
+        Path newer = this.directory.resolve("version.bin");
+        Files.write(newer, version);
+        assertMalformed(newer);
+    }
+
+    @Test
+    void unreadableFiles(){
+        assertThrows(UncheckedIOException.class, () -> Instance.read(this.directory.resolve("missing.json")));
+        assertThrows(IllegalArgumentException.class, () -> Instance.read(this.directory.resolve("instance.txt")));
+    }
+}
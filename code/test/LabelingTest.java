@@ -0,0 +1,149 @@
+package BnP_Framework;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+The tests compare the modes of the labeling on the bundled instances, the routes a pricing can generate only depend on
+    the memory of the labels, so the bidirectional labeling must find the cheapest route of the monodirectional one,
+    and the cheapest route gets dearer as more cycles are excluded, the elementary routes are ng-routes, the ng-routes
+    may still return to a customer outside the neighbourhood of the next one, so they are only dearer than the routes
+    of the 2-cycle elimination on these instances, where such cycles are never the cheapest, the same holds for the
+    bound of the root optimized without cuts
+    column generation only adds the routes whose reduced cost is below Labeling.threshold, so two labelings can stop at
+    root objectives that differ by a part of it, the pricing itself is compared exactly, on the small instance only,
+    since the elementary labeling of the larger one takes seconds under the duals of the test
+*/
+class LabelingTest {
+    static final double eps = 1e-6;
+    static final String[] instances = {"vrp_bp_10.json", "vrp_bp_30.json"};
+    static final int neighbourhood = 8;     // the ngSize of the ng-routes
+    boolean bidirectional;
+    int ngSize;
+    boolean elementary;
+    int cutRounds;
+
+    @BeforeEach
+    void keep(){
+        this.bidirectional = UserParam.bidirectional;
+        this.ngSize = UserParam.ngSize;
+        this.elementary = UserParam.elementary;
+        this.cutRounds = UserParam.cutRounds;
+    }
+
+    @AfterEach
+    void restore(){
+        UserParam.bidirectional = this.bidirectional;
+        UserParam.ngSize = this.ngSize;
+        UserParam.elementary = this.elementary;
+        UserParam.cutRounds = this.cutRounds;
+    }
+
+    static UserParam user(String name){
+        return new UserParam(Instance.read(Paths.get("..", "instance", name)));
+    }
+
+    static void mode(boolean bidirectional, int ngSize, boolean elementary){
+        UserParam.bidirectional = bidirectional;
+        UserParam.ngSize = ngSize;
+        UserParam.elementary = elementary;
+    }
+
+    // the lowest reduced cost of the routes found by an exact pricing under the duals, each route is checked
+    static double cheapest(UserParam user, double[] pi, boolean bidirectional, int ngSize, boolean elementary){
+        mode(bidirectional, ngSize, elementary);
+        Labeling labeling = new Labeling(user, user.successors);
+        List<Route> routes = new ArrayList<Route>();
+        labeling.pricing(pi, Integer.MAX_VALUE, routes);
+        double cheapest = Double.POSITIVE_INFINITY;
+        for (Route route: routes){
+            double load = 0.0;
+            double reducedCost = 0.0;
+            boolean[] visited = new boolean[user.nodeCount];
+            for (int k=0;k<route.path.length;k++){
+                int i = route.path[k];
+                int j = k < route.path.length-1 ? route.path[k+1] : 0;
+                reducedCost += user.cost[i][j] - pi[j];
+                if (j != 0){
+                    load += user.demand[j];
+                    assertFalse(elementary && visited[j], "customer " + j + " visited twice");
+                    visited[j] = true;
+                }
+                if (k > 1 && ngSize == 0 && !elementary){
+                    assertNotEquals(route.path[k-2], route.path[k], "2-cycle");
+                }
+            }
+            assertTrue(load <= user.capacity + eps, "route over capacity");
+            assertTrue(reducedCost < Labeling.threshold + eps, "reduced cost " + reducedCost);
+            cheapest = Math.min(cheapest, reducedCost);
+        }
+        assertEquals(cheapest, labeling.minReducedCost, eps);
+        return cheapest;
+    }
+
+    // the objective of the root optimized without cuts
+    static double rootBound(String name, boolean bidirectional, int ngSize, boolean elementary){
+        mode(bidirectional, ngSize, elementary);
+        UserParam.cutRounds = 0;
+        UserParam user = user(name);
+        for (int i = 1; i < user.nodeCount; i++){
+            user.columnPool.add(new Route(new int[]{0, i}, user));
+        }
+        BnbNode root = new BnbNode(user);
+        MasterProblem mp = MasterProblem.create(user);
+        try{
+            root.columnGeneration(mp, user);
+        }finally{
+            mp.dispose();
+            user.pricing.shutdown();
+        }
+        assertTrue(root.feasible);
+        assertFalse(root.interrupted);
+        return root.objVal;
+    }
+
+    @Test
+    void pricingOfEachMode(){
+        UserParam user = user("vrp_bp_10.json");
+        try{
+//            the duals of the routes 0->i->0 scaled down, the larger they are the longer the routes of negative cost
+            for (double scale: new double[]{0.6, 0.8, 1.0}){
+                double[] pi = new double[user.nodeCount];
+                for (int i=1;i<user.nodeCount;i++){
+                    pi[i] = scale * (user.cost[0][i] + user.cost[i][0]) / 2;
+                }
+                String at = "duals at " + scale;
+                double cycles = cheapest(user, pi, false, 0, false);
+                double ng = cheapest(user, pi, false, neighbourhood, false);
+                double elementary = cheapest(user, pi, false, 0, true);
+                assertEquals(cycles, cheapest(user, pi, true, 0, false), eps, at + ", 2-cycle");
+                assertEquals(ng, cheapest(user, pi, true, neighbourhood, false), eps, at + ", ng");
+                assertEquals(elementary, cheapest(user, pi, true, 0, true), eps, at + ", elementary");
+                assertTrue(ng >= cycles - eps, at + ": ng " + ng + " below 2-cycle " + cycles);
+                assertTrue(elementary >= ng - eps, at + ": elementary " + elementary + " below ng " + ng);
+            }
+        }finally{
+            user.pricing.shutdown();
+        }
+    }
+
+    @Test
+    void rootBoundOfEachMode(){
+        double slack = -Labeling.threshold;
+        for (String name: instances){
+            double cycles = rootBound(name, false, 0, false);
+            double ng = rootBound(name, false, neighbourhood, false);
+            double elementary = rootBound(name, false, 0, true);
+            assertEquals(cycles, rootBound(name, true, 0, false), slack, name + ", 2-cycle");
+            assertEquals(ng, rootBound(name, true, neighbourhood, false), slack, name + ", ng");
+            assertEquals(elementary, rootBound(name, true, 0, true), slack, name + ", elementary");
+            assertTrue(ng >= cycles - slack, name + ": ng " + ng + " below 2-cycle " + cycles);
+            assertTrue(elementary >= ng - slack, name + ": elementary " + elementary + " below ng " + ng);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package BnP_Framework;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+The tests solve small set-partitioning LPs with SimplexMaster and compare the objective and the duals with optima
+    computed by hand
+    the triangle instance has 3 customers of demand 10 and a capacity of 20, every arc costs 10, a single costs 10,
+    a pair costs 12 and the route of all customers 30, the LP optimum takes each pair at 1/2 for 18 with duals 6,
+    the capacity cut of all customers asks for 2 routes, which raises the optimum to 22 with duals 2 and 8 for the cut
+*/
+class SimplexMasterTest {
+    static final double eps = 1e-7;
+
+    static UserParam triangle(){
+        double[][] cost = new double[4][4];
+        for (int i=0;i<4;i++){
+            for (int j=0;j<4;j++){
+                cost[i][j] = i == j ? 0.0 : 10.0;
+            }
+        }
+        return new UserParam(new Instance(4, 20.0, new double[]{0.0, 10.0, 10.0, 10.0}, cost));
+    }
+
+    static List<Route> triangleRoutes(){
+        List<Route> routes = new ArrayList<Route>();
+        routes.add(new Route(new int[]{0, 1}, 10.0, 4));
+        routes.add(new Route(new int[]{0, 2}, 10.0, 4));
+        routes.add(new Route(new int[]{0, 3}, 10.0, 4));
+        routes.add(new Route(new int[]{0, 1, 2}, 12.0, 4));
+        routes.add(new Route(new int[]{0, 2, 3}, 12.0, 4));
+        routes.add(new Route(new int[]{0, 1, 3}, 12.0, 4));
+        routes.add(new Route(new int[]{0, 1, 2, 3}, 30.0, 4));
+        return routes;
+    }
+
+    static SimplexMaster solved(UserParam user, List<Route> routes){
+        SimplexMaster master = new SimplexMaster(user);
+        master.load(routes);
+        assertEquals(MasterProblem.Status.OPTIMAL, master.solve());
+        return master;
+    }
+
+    @Test
+    void fractionalOptimumAndDuals(){
+        List<Route> routes = triangleRoutes();
+        SimplexMaster master = solved(triangle(), routes);
+        assertEquals(18.0, master.objVal(), eps);
+        assertArrayEquals(new double[]{0.0, 6.0, 6.0, 6.0}, master.duals(), eps);
+        assertEquals(0.0, master.infeasibility(), eps);
+        for (int r=3;r<6;r++){
+            assertEquals(0.5, master.value(routes.get(r)), eps);
+        }
+    }
+
+    @Test
+    void integralOptimum(){
+//        without the pair {1,3} a pair and a single cover the customers
+        List<Route> routes = triangleRoutes();
+        routes.remove(5);
+        SimplexMaster master = solved(triangle(), routes);
+        assertEquals(22.0, master.objVal(), eps);
+        double sum = 0.0;
+        for (Route route: routes){
+            double value = master.value(route);
+            assertTrue(value < eps || value > 1 - eps, "route " + route + " at " + value);
+            sum += value;
+        }
+        assertEquals(2.0, sum, eps);
+    }
+
+    @Test
+    void infeasibleCoverage(){
+//        no route visits customer 3, its artificial column stays basic at 1 and costs bigM = 60
+        List<Route> routes = triangleRoutes().subList(0, 2);
+        SimplexMaster master = solved(triangle(), routes);
+        assertEquals(1.0, master.infeasibility(), eps);
+        assertEquals(80.0, master.objVal(), eps);
+    }
+
+    @Test
+    void negativeCostRoutesStayBounded(){
+//        the partitioning rows bound every route by 1, so negative costs give a finite optimum, never UNBOUNDED
+        List<Route> routes = new ArrayList<Route>();
+        routes.add(new Route(new int[]{0, 1}, -5.0, 4));
+        routes.add(new Route(new int[]{0, 2}, -5.0, 4));
+        routes.add(new Route(new int[]{0, 3}, -5.0, 4));
+        routes.add(new Route(new int[]{0, 1, 2, 3}, -20.0, 4));
+        SimplexMaster master = solved(triangle(), routes);
+        assertEquals(-20.0, master.objVal(), eps);
+        assertEquals(1.0, master.value(routes.get(3)), eps);
+    }
+
+    @Test
+    void cutAndWarmResolve(){
+        UserParam user = triangle();
+        List<Route> routes = triangleRoutes();
+        SimplexMaster master = solved(user, routes);
+        int iterations = master.iterations;
+        Cut cut = new Cut(new int[]{1, 2, 3}, user);
+        assertEquals(2.0, cut.rhs, eps);
+        master.addCuts(Arrays.asList(cut));
+        assertEquals(MasterProblem.Status.OPTIMAL, master.solve());
+        assertEquals(22.0, master.objVal(), eps);
+        assertArrayEquals(new double[]{0.0, 2.0, 2.0, 2.0, 8.0}, master.duals(), eps);
+        assertEquals(1, master.cutCount());
+//        the cut only moves the basis a few pivots away from the previous optimum
+        assertTrue(master.iterations <= iterations + 4, master.iterations + " iterations after the cut");
+
+//        the same LP solved from scratch with the cut
+        SimplexMaster cold = new SimplexMaster(user);
+        cold.addCuts(Arrays.asList(cut));
+        cold.load(routes);
+        assertEquals(MasterProblem.Status.OPTIMAL, cold.solve());
+        assertEquals(master.objVal(), cold.objVal(), eps);
+        assertArrayEquals(master.duals(), cold.duals(), eps);
+    }
+
+    @Test
+    void purgeAndWarmResolve(){
+        UserParam user = triangle();
+        List<Route> routes = triangleRoutes();
+        SimplexMaster master = solved(user, routes);
+//        the route of all customers is nonbasic, evicting it removes its column from the LP
+        Route all = routes.remove(6);
+        assertEquals(0.0, master.value(all), eps);
+        all.evicted = true;
+        master.load(routes);
+        assertEquals(6, master.n);
+        assertEquals(MasterProblem.Status.OPTIMAL, master.solve());
+        assertEquals(18.0, master.objVal(), eps);
+        assertArrayEquals(new double[]{0.0, 6.0, 6.0, 6.0}, master.duals(), eps);
+
+//        a branch that removes the pair {1,3} leaves the basis primal infeasible, the dual simplex repairs it
+        Route pair = routes.get(5);
+        master.load(routes.subList(0, 5));
+        assertEquals(MasterProblem.Status.OPTIMAL, master.solve());
+        assertEquals(22.0, master.objVal(), eps);
+        assertEquals(0.0, master.value(pair), eps);
+        assertEquals(0.0, master.infeasibility(), eps);
+
+//        the pair is back in the next node
+        master.load(routes);
+        assertEquals(MasterProblem.Status.OPTIMAL, master.solve());
+        assertEquals(18.0, master.objVal(), eps);
+    }
+
+    @Test
+    void blandFallbackOnDegenerateLP(){
+//        all routes of up to 3 of 9 customers, the partitioning LP is highly degenerate from the artificial basis
+        int nodeCount = 10;
+        Random random = new Random(7);
+        double[][] xy = new double[nodeCount][2];
+        for (double[] point: xy){
+            point[0] = random.nextInt(100);
+            point[1] = random.nextInt(100);
+        }
+        double[][] cost = new double[nodeCount][nodeCount];
+        for (int i=0;i<nodeCount;i++){
+            for (int j=0;j<nodeCount;j++){
+                cost[i][j] = Math.rint(Math.hypot(xy[i][0] - xy[j][0], xy[i][1] - xy[j][1]));
+            }
+        }
+        double[] demand = new double[nodeCount];
+        Arrays.fill(demand, 1, nodeCount, 1.0);
+        UserParam user = new UserParam(new Instance(nodeCount, 3.0, demand, cost));
+        List<Route> routes = new ArrayList<Route>();
+        for (int i=1;i<nodeCount;i++){
+            routes.add(new Route(new int[]{0, i}, user));
+            for (int j=i+1;j<nodeCount;j++){
+                routes.add(new Route(new int[]{0, i, j}, user));
+                for (int k=j+1;k<nodeCount;k++){
+                    routes.add(new Route(new int[]{0, i, j, k}, user));
+                }
+            }
+        }
+        SimplexMaster dantzig = solved(user, routes);
+        SimplexMaster bland = new SimplexMaster(user);
+        bland.degenerateLimit = 0;
+        bland.load(routes);
+        assertEquals(MasterProblem.Status.OPTIMAL, bland.solve());
+        assertTrue(bland.blandPivots > 0, "no pivot followed Bland's rule");
+        assertEquals(dantzig.objVal(), bland.objVal(), eps);
+        assertEquals(0.0, bland.infeasibility(), eps);
+//        the duals are optimal, a route has a nonnegative reduced cost unless it is nonbasic at its upper bound
+        double[] pi = bland.duals();
+        for (Route route: routes){
+            double reducedCost = route.cost;
+            for (int customer: route.customers){
+                reducedCost -= pi[customer];
+            }
+            assertTrue(reducedCost > -1e-6 || bland.value(route) > 1 - eps, "route " + route + " has reduced cost " + reducedCost);
+        }
+    }
+}
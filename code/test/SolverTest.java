@@ -0,0 +1,216 @@
+package BnP_Framework;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+/*
+The tests run whole solves through class Solver on small generated instances, with the parameters of UserParam left at
+    their defaults, which is what the jar of the default build runs
+*/
+class SolverTest {
+    @Test
+    void defaultBuildFallsBackToSimplex(){
+        assertEquals(MasterProblem.Backend.GUROBI, UserParam.lpSolver);
+        boolean gurobi;
+        try{
+            Class.forName("gurobi.GRBEnv");
+            gurobi = true;
+        }catch (ClassNotFoundException e){
+            gurobi = false;
+        }
+        UserParam user = new UserParam(InstanceGenerator.generate(5, 1));
+        MasterProblem master = MasterProblem.create(user);
+        try{
+            if (!gurobi){
+                assertTrue(master instanceof SimplexMaster, master.getClass().getName());
+            }
+        }finally{
+            master.dispose();
+        }
+    }
+
+    @Test
+    void smokeSolveWithDefaults(){
+        Solver.Result result = Solver.solve(InstanceGenerator.generate(10, 3), new Solver.Options().timeLimit(60));
+        assertEquals(Solver.Status.OPTIMAL, result.status);
+        assertEquals(result.objective, result.bound, 1e-6);
+        double cost = 0.0;
+        Instance instance = InstanceGenerator.generate(10, 3);
+        boolean[] visited = new boolean[instance.nodeCount];
+        for (int[] path: result.routes){
+            double load = 0.0;
+            for (int k=0;k<path.length;k++){
+                cost += instance.cost[path[k]][k < path.length-1 ? path[k+1] : 0];
+                if (k > 0){
+                    assertFalse(visited[path[k]], "customer " + path[k] + " visited twice");
+                    visited[path[k]] = true;
+                    load += instance.demand[path[k]];
+                }
+            }
+            assertTrue(load <= instance.capacity, "route over capacity");
+        }
+        for (int i=1;i<instance.nodeCount;i++){
+            assertTrue(visited[i], "customer " + i + " not visited");
+        }
+        assertEquals(result.objective, cost, 1e-6);
+    }
+
+    @Test
+    void logGoesToTheListener(){
+        List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try{
+            Solver.solve(InstanceGenerator.generate(12, 2), new Solver.Options().listener(new Solver.Listener(){
+                @Override
+                public void message(String line){
+                    lines.add(line);
+                }
+            }));
+        }finally{
+            System.setOut(out);
+        }
+        assertEquals(0, printed.size(), printed.toString());
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("Heuristic solution found by savings")),
+                lines.toString());
+    }
+
+    @Test
+    void gapLimitCountsTheNodesInFlight(){
+//        with several workers the nodes being optimized hold the lowest bounds, the stopped solve must still be within
+//        the gap limit
+        int threads = UserParam.threads;
+        UserParam.threads = 4;
+        try{
+            int stopped = 0;
+            for (long seed=5;seed<=7;seed++){
+                double gapLimit = 0.01;
+                double[] bound = {Double.NEGATIVE_INFINITY};
+                Solver.Result result = Solver.solve(InstanceGenerator.generate(25, seed), new Solver.Options().
+                        gapLimit(gapLimit).listener(new Solver.Listener(){
+                            @Override
+                            public void bound(double value, double seconds){
+                                assertTrue(value > bound[0], "the bound went from " + bound[0] + " to " + value);
+                                bound[0] = value;
+                            }
+                        }));
+                assertTrue(result.status == Solver.Status.OPTIMAL || result.status == Solver.Status.GAP_LIMIT,
+                        result.status.toString());
+                assertTrue(result.gap <= gapLimit, "gap " + result.gap + " above the limit");
+                assertTrue(bound[0] <= result.bound + 1e-9, "reported bound " + bound[0] + " above " + result.bound);
+                if (result.status == Solver.Status.GAP_LIMIT){
+                    stopped++;
+                }
+            }
+            assertTrue(stopped > 0, "no solve reached the gap limit");
+        }finally{
+            UserParam.threads = threads;
+        }
+    }
+
+    @Test
+    void concurrentSolvesWithDifferentPricingThreads() throws Exception{
+//        each solve keeps the pricing threads it started with, the later solves don't stop the pool of the first ones
+        Solver.Result[] alone = new Solver.Result[4];
+        for (int k=0;k<4;k++){
+            alone[k] = Solver.solve(InstanceGenerator.generate(12, k), new Solver.Options());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Solver.Result>> results = new ArrayList<Future<Solver.Result>>();
+            for (int k=0;k<4;k++){
+                UserParam.pricingThreads = 2 + k % 2;
+                long seed = k;
+                results.add(executor.submit(() -> Solver.solve(InstanceGenerator.generate(12, seed),
+                        new Solver.Options())));
+                Thread.sleep(20);
+            }
+            for (int k=0;k<4;k++){
+                Solver.Result result = results.get(k).get();
+                assertEquals(Solver.Status.OPTIMAL, result.status);
+                assertEquals(alone[k].objective, result.objective, 1e-6);
+            }
+        }finally{
+            UserParam.pricingThreads = 1;
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void errorOfAWorkerFailsTheSolve(){
+//        the bounds are reported by the worker that branched a node, a listener that throws there, on whichever worker,
+//        must fail the solve instead of losing the node
+        int threads = UserParam.threads;
+        UserParam.threads = 3;
+        try{
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> Solver.solve(
+                    InstanceGenerator.generate(20, 4), new Solver.Options().listener(new Solver.Listener(){
+                        @Override
+                        public void bound(double bound, double seconds){
+                            throw new UnsupportedOperationException("listener failed");
+                        }
+                    })));
+            assertTrue(e.getCause() instanceof UnsupportedOperationException, String.valueOf(e.getCause()));
+        }finally{
+            UserParam.threads = threads;
+        }
+    }
+
+    @Test
+    void interruptedSolveKeepsItsOpenNodes(){
+//        the deterministic search waits for the nodes of a round on the calling thread, which is interrupted once the
+//        first bound is reported
+        int threads = UserParam.threads;
+        boolean deterministic = UserParam.deterministic;
+        UserParam.threads = 2;
+        UserParam.deterministic = true;
+        try{
+            Solver.Result result = Solver.solve(InstanceGenerator.generate(25, 5), new Solver.Options().listener(
+                    new Solver.Listener(){
+                        @Override
+                        public void bound(double bound, double seconds){
+                            Thread.currentThread().interrupt();
+                        }
+                    }));
+            assertTrue(Thread.interrupted(), "the interrupt of the caller was lost");
+            assertEquals(Solver.Status.CANCELLED, result.status);
+            assertTrue(result.bound < result.objective, result.toString());
+        }finally{
+            Thread.interrupted();
+            UserParam.threads = threads;
+            UserParam.deterministic = deterministic;
+        }
+    }
+
+    @Test
+    void batchFailsTheInstancesAfterAParameterChange(){
+//        one solve at a time, the parameters change once the first instance is solved
+        Path path = Paths.get("..", "instance", "vrp_bp_10.json");
+        int cutRounds = UserParam.cutRounds;
+        String parameters = UserParam.parameters();
+        try{
+            BatchSolver.Report report = new BatchSolver(1, name -> new Solver.Options()).solve(
+                    Arrays.asList(path, path), entry -> UserParam.cutRounds = cutRounds + 1);
+            assertEquals(parameters, report.parameters);
+            assertEquals(Solver.Status.OPTIMAL, report.entries.get(0).result.status);
+            assertNull(report.entries.get(1).result);
+            assertTrue(report.entries.get(1).error.contains("parameters of UserParam changed"),
+                    report.entries.get(1).error);
+            assertEquals(1, report.failed);
+        }finally{
+            UserParam.cutRounds = cutRounds;
+        }
+    }
+}